@@ -0,0 +1,582 @@
+/*
+MinesweeperChecks.java
+
+This program checks the parts of Minesweeper that are too big or too concurrent to check by playing a game
+through the standard output. It is compiled together with the game (saved as Minesweeper.java, the same as
+when compiling the game on its own) and run on its own, so the game itself never carries any of this code:
+   javac Minesweeper.java MinesweeperChecks.java
+   java MinesweeperChecks
+
+Each check prints one line for every board it tries, and the program exits with 1 if any check failed.
+*/
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+import java.io.*;
+
+@SuppressWarnings("auxiliaryclass")              //Topology, SharedBoard and the rest are declared next to Minesweeper
+class MinesweeperChecks
+{
+   public static void main(String[] args)
+   {
+      //Variable Declaration
+      boolean passed = true;
+      
+      passed &= checkParallelReveal();
+      passed &= checkSharedBoard(32, 24);
+      passed &= checkHistorySummary();
+      passed &= checkBoardMetrics();
+      
+      System.out.println(passed ? "All checks passed." : "Some checks FAILED.");
+      System.exit(passed ? 0 : 1);
+   }
+   
+   /*
+   startGame(char[] privateBoard, int mines)
+   
+   This method sets up Minesweeper's static variables for a new game on privateBoard, which is laid out by
+   Minesweeper.topology, the same way the main method does, without asking the user anything.
+   */
+   static void startGame(char[] privateBoard, int mines)
+   {
+      Minesweeper.numberOfRows = Minesweeper.topology.rows;
+      Minesweeper.numberOfCols = Minesweeper.topology.cols;
+      Minesweeper.numberOfGrids = Minesweeper.topology.rows * Minesweeper.topology.cols;
+      Minesweeper.numberOfMines = mines;
+      Minesweeper.privateBoard = privateBoard;
+      Minesweeper.publicBoard = new PlayerBoard(Minesweeper.topology, privateBoard);
+      Minesweeper.revealQueueSize = 0;
+      Minesweeper.squaresRevealed = 0;
+      Minesweeper.resetViewport();
+   }
+   
+   /*
+   checkParallelReveal()
+   
+   returns boolean - true if every board passed
+   
+   This method digs a 0 on big boards of every topology and checks that revealZeros() reveals exactly the
+   squares that a plain breadth first search from that 0 finds, with every 0 shown as ' '. The search also
+   finds the biggest ring that revealZeros() will meet, and at least one board has to have a ring of
+   PARALLEL_REVEAL_THRESHOLD 0s or more, so the rings split between threads by RevealChunk are checked too.
+   */
+   static boolean checkParallelReveal()
+   {
+      //Variable Declaration
+      int[] kinds = {Topology.SQUARE, Topology.TORUS, Topology.HEXAGONAL};
+      int[] mineCounts = {0, 2000, 99800};
+      boolean passed = true;
+      boolean parallelUsed = false;
+      
+      for (int kind : kinds)
+      {
+         for (int mines : mineCounts)
+         {
+            Topology topology = new Topology(kind, 999, 999);
+            Random random = new Random(kind * 31 + mines);
+            char[] privateBoard = Minesweeper.createBoard(topology, mines, random);
+            boolean[] expected = new boolean[topology.size];
+            int expectedCount = 0;
+            int largestRing = 0;
+            int start = -1;
+            boolean same = true;
+            
+            //Choosing a random 0 to dig
+            for (int i = random.nextInt(topology.size); start == -1; i = (i + 1) % topology.size)
+            {
+               if (privateBoard[i] == '0')
+               {
+                  start = i;
+               }
+            }
+            
+            //Finding the squares that should be revealed one ring at a time
+            List<Integer> ring = new ArrayList<Integer>();
+            ring.add(start);
+            expected[start] = true;
+            expectedCount++;
+            while (!ring.isEmpty())
+            {
+               largestRing = Math.max(largestRing, ring.size());
+               List<Integer> next = new ArrayList<Integer>();
+               for (int square : ring)
+               {
+                  int[] offsets = topology.offsetsFor(square);
+                  for (int k = 0; k < offsets.length; k++)
+                  {
+                     int neighbour = topology.neighbour(square, offsets[k]);
+                     if (privateBoard[neighbour] != Topology.BORDER && !expected[neighbour])
+                     {
+                        expected[neighbour] = true;
+                        expectedCount++;
+                        if (privateBoard[neighbour] == '0')
+                        {
+                           next.add(neighbour);
+                        }
+                     }
+                  }
+               }
+               ring = next;
+            }
+            
+            Minesweeper.topology = topology;
+            startGame(privateBoard, mines);
+            Minesweeper.digSquare(start);
+            Minesweeper.revealZeros();
+            
+            for (int i = 0; i < topology.rows && same; i++)
+            {
+               for (int j = 0; j < topology.cols && same; j++)
+               {
+                  int square = topology.square(i, j);
+                  char shown = Minesweeper.publicBoard.shown(square);
+                  if (expected[square])
+                  {
+                     same = (privateBoard[square] == '0') ? shown == ' ' : shown == privateBoard[square];
+                  }
+                  else
+                  {
+                     same = shown == '_';
+                  }
+               }
+            }
+            same &= Minesweeper.squaresRevealed == expectedCount;
+            
+            parallelUsed |= largestRing >= Minesweeper.PARALLEL_REVEAL_THRESHOLD;
+            passed &= same;
+            System.out.println("Reveal on " + topology.rows + "x" + topology.cols + " topology " + kind + " with " + mines + " mines: "
+               + (same ? "passed" : "FAILED") + " (" + expectedCount + " squares, biggest ring " + largestRing + ")");
+         }
+      }
+      
+      if (!parallelUsed)
+      {
+         System.out.println("Reveal FAILED: no ring was big enough to be split between threads.");
+      }
+      return passed && parallelUsed;
+   }
+   
+   /*
+   checkSharedBoard(int players, int rounds)
+   
+   int players - The number of threads playing on each board at once
+   int rounds - The number of boards to play
+   
+   returns boolean - true if every round passed
+   
+   This method checks that SharedBoard stays correct when many players hammer the same board at once. Rounds
+   take turns between two kinds:
+      - In a hammer round, every player digs every safe square in its own random order while also flagging
+         and unflagging random squares, so the same squares and flood fills are fought over constantly. In
+         every other hammer round, one player also digs a mine once half of the safe squares are revealed,
+         racing the others to end the game.
+      - In a flood round, nobody flags and each player only digs a few random 0s, so almost every square is
+         revealed by flood fills that run into each other. Afterwards the revealed squares must be exactly
+         the ones that a breadth first search from those 0s finds, so a flood fill that stopped early or
+         skipped a square is caught.
+   After every round, the game must have ended exactly once if it ended at all, and revealed must match the
+   number of squares that are shown as revealed, so no square was counted twice.
+   */
+   static boolean checkSharedBoard(int players, int rounds)
+   {
+      //Variable Declaration
+      int[] kinds = {Topology.SQUARE, Topology.TORUS, Topology.HEXAGONAL};
+      boolean passed = true;
+      
+      for (int round = 0; round < rounds; round++)
+      {
+         final boolean flood = (round % 2 == 1);
+         final boolean digMine = (round % 4 == 2);
+         final Topology topology = new Topology(kinds[round % kinds.length], 120, 150);
+         final int mines = topology.rows * topology.cols / (flood ? 40 : 8);
+         final char[] privateBoard = Minesweeper.createBoard(topology, mines);
+         final SharedBoard board = new SharedBoard(topology, privateBoard, mines);
+         final AtomicInteger endings = new AtomicInteger(0);
+         final CountDownLatch start = new CountDownLatch(1);
+         final List<Integer> safe = new ArrayList<Integer>();
+         final List<Integer> zeros = new ArrayList<Integer>();
+         final List<Integer> mined = new ArrayList<Integer>();
+         final Set<Integer> seeds = Collections.synchronizedSet(new HashSet<Integer>());
+         Thread[] threads = new Thread[players];
+         int shownRevealed = 0;
+         boolean same = true;
+         
+         for (int i = 0; i < topology.rows; i++)
+         {
+            for (int j = 0; j < topology.cols; j++)
+            {
+               int square = topology.square(i, j);
+               (privateBoard[square] == 'X' ? mined : safe).add(square);
+               if (privateBoard[square] == '0')
+               {
+                  zeros.add(square);
+               }
+            }
+         }
+         
+         for (int p = 0; p < players; p++)
+         {
+            final int player = p;
+            threads[p] = new Thread(new Runnable()
+            {
+               public void run()
+               {
+                  Random random = ThreadLocalRandom.current();
+                  List<Integer> order = new ArrayList<Integer>(safe);
+                  Collections.shuffle(order, random);
+                  
+                  try
+                  {
+                     start.await();
+                  }
+                  catch (InterruptedException e)
+                  {
+                     return;
+                  }
+                  
+                  //Digging a few 0s, and leaving the rest of the board to the flood fills
+                  if (flood)
+                  {
+                     for (int k = 0; k < 3; k++)
+                     {
+                        int seed = zeros.get(random.nextInt(zeros.size()));
+                        seeds.add(seed);
+                        if (board.dig(player, seed))
+                        {
+                           endings.incrementAndGet();
+                        }
+                     }
+                     return;
+                  }
+                  
+                  for (int k = 0; k < order.size() && board.outcome.get() == SharedBoard.PLAYING; k++)
+                  {
+                     if (random.nextInt(4) == 0)
+                     {
+                        board.flag(player, topology.square(random.nextInt(topology.rows), random.nextInt(topology.cols)));
+                     }
+                     if (random.nextInt(4) == 0)
+                     {
+                        board.unflag(topology.square(random.nextInt(topology.rows), random.nextInt(topology.cols)));
+                     }
+                     if (digMine && player == 0 && board.revealed.get() >= board.safeSquares / 2 && board.dig(player, mined.get(0)))
+                     {
+                        endings.incrementAndGet();
+                     }
+                     
+                     //Digging this player's next square, taking away any flag that is in the way
+                     while ((board.cells.get(order.get(k)) & SharedBoard.STATE_MASK) != SharedBoard.REVEALED 
+                        && board.outcome.get() == SharedBoard.PLAYING)
+                     {
+                        board.unflag(order.get(k));
+                        if (board.dig(player, order.get(k)))
+                        {
+                           endings.incrementAndGet();
+                        }
+                     }
+                  }
+               }
+            });
+            threads[p].start();
+         }
+         
+         start.countDown();
+         for (Thread thread : threads)
+         {
+            try
+            {
+               thread.join();
+            }
+            catch (InterruptedException e)
+            {
+               return false;
+            }
+         }
+         
+         for (int square : safe)
+         {
+            if ((board.cells.get(square) & SharedBoard.STATE_MASK) == SharedBoard.REVEALED)
+            {
+               shownRevealed++;
+            }
+         }
+         
+         //Checking that the flood fills revealed exactly the squares that can be reached from the 0s that were dug
+         if (flood)
+         {
+            boolean[] expected = new boolean[topology.size];
+            ArrayDeque<Integer> queue = new ArrayDeque<Integer>(seeds);
+            for (int seed : seeds)
+            {
+               expected[seed] = true;
+            }
+            while (!queue.isEmpty())
+            {
+               int square = queue.poll();
+               int[] offsets = topology.offsetsFor(square);
+               for (int k = 0; k < offsets.length && privateBoard[square] == '0'; k++)
+               {
+                  int neighbour = topology.neighbour(square, offsets[k]);
+                  if (privateBoard[neighbour] != Topology.BORDER && !expected[neighbour])
+                  {
+                     expected[neighbour] = true;
+                     queue.add(neighbour);
+                  }
+               }
+            }
+            for (int square : safe)
+            {
+               same &= expected[square] == ((board.cells.get(square) & SharedBoard.STATE_MASK) == SharedBoard.REVEALED);
+            }
+         }
+         
+         //Checking that the game ended at most once, and that every revealed square was only counted once
+         int outcome = board.outcome.get() & SharedBoard.STATE_MASK;
+         if (!same || endings.get() != (outcome == SharedBoard.PLAYING ? 0 : 1) || shownRevealed != board.revealed.get()
+            || (!flood && outcome == SharedBoard.PLAYING) || (outcome == SharedBoard.WON && board.revealed.get() != board.safeSquares))
+         {
+            passed = false;
+            System.out.println("Shared board round " + (round+1) + " FAILED: endings " + endings.get() + ", outcome " + outcome 
+               + ", revealed " + board.revealed.get() + " of " + board.safeSquares + ", shown " + shownRevealed 
+               + (same ? "" : ", flood fills missed or added squares"));
+         }
+         else
+         {
+            System.out.println("Shared board round " + (round+1) + " passed: " + (flood ? "flood" : "hammer") + " round, " 
+               + (outcome == SharedBoard.WON ? "won" : outcome == SharedBoard.LOST ? "lost" : "still playing") + ", " 
+               + board.revealed.get() + " of " + board.safeSquares + " safe squares revealed.");
+         }
+      }
+      
+      return passed;
+   }
+   
+   /*
+   checkHistorySummary()
+   
+   returns boolean - true if every summary matched
+   
+   This method writes a few blocks of games into a new history file and checks that GameHistory.summarize()
+   gives the same games, wins, and best time as counting the matching games one at a time. The blocks are
+   filled so that every way summarize() can handle a block is used:
+      - The first block only has 9x9 games with 10 mines on square boards, so questions about exactly that
+         board are answered from its header alone.
+      - The second block only has 30x30 games, so questions about 9x9 boards skip it without reading it.
+      - The rest of the games are random sizes, mines, and topologies, so their columns have to be read.
+   The games are added a few hundred at a time, so append() also has to keep filling a block that is
+   already partly full. Each question is also checked to make sure that at least one block was answered
+   from its header and one was skipped, so the check can't pass without using those paths.
+   */
+   static boolean checkHistorySummary()
+   {
+      //Variable Declaration
+      int[] sizes = {9, 16, 30};
+      int[][] questions = {
+         {Topology.SQUARE, 9, 9, 10, 10},
+         {Topology.SQUARE, 9, 9, 9, 11},
+         {Topology.SQUARE, 9, 9, 0, 100},
+         {Topology.TORUS, 16, 16, 20, 60},
+         {Topology.HEXAGONAL, 30, 9, 27, 27},
+         {Topology.SQUARE, 30, 30, 50, 99},
+         {Topology.HEXAGONAL, 16, 30, 0, 1000}};
+      Random random = new Random(32);
+      List<int[]> games = new ArrayList<int[]>();
+      List<Long> endTimes = new ArrayList<Long>();
+      boolean passed = true;
+      boolean headerUsed = false;
+      boolean skipUsed = false;
+      File history;
+      
+      //Filling the first block with one exact board, the second with 30x30 boards, and the rest with anything
+      for (int i = 0; i < GameHistory.BLOCK_RECORDS * 3 + 1000; i++)
+      {
+         int block = i / GameHistory.BLOCK_RECORDS;
+         int rows = (block == 0) ? 9 : (block == 1) ? 30 : sizes[random.nextInt(sizes.length)];
+         int cols = (block == 0) ? 9 : (block == 1) ? 30 : sizes[random.nextInt(sizes.length)];
+         int mines = (block == 0) ? 10 : 10 + random.nextInt(90);
+         int topology = (block == 0) ? Topology.SQUARE : 1 + random.nextInt(3);
+         games.add(new int[] {rows, cols, mines, random.nextInt(2), 1000 + random.nextInt(1000000), 1 + random.nextInt(500), topology});
+         endTimes.add(1600000000000L + i);
+      }
+      
+      try
+      {
+         history = File.createTempFile("minesweeper", ".history");
+         history.delete();
+         history.deleteOnExit();
+         
+         //Checking that a history file that does not exist yet has no games
+         if (GameHistory.summarize(history.getPath(), Topology.SQUARE, 9, 9, 10, 10).games != 0)
+         {
+            passed = false;
+            System.out.println("History summary FAILED: a history file that does not exist has games in it.");
+         }
+         
+         for (int i = 0; i < games.size(); i += 700)
+         {
+            GameHistory.append(history.getPath(), games.subList(i, Math.min(i + 700, games.size())), 
+               endTimes.subList(i, Math.min(i + 700, games.size())));
+         }
+         
+         for (int[] question : questions)
+         {
+            GameHistory.Summary summary = GameHistory.summarize(history.getPath(), question[0], question[1], question[2], question[3], question[4]);
+            long expectedGames = 0;
+            long expectedWins = 0;
+            int expectedBest = Integer.MAX_VALUE;
+            boolean same;
+            
+            //Counting the matching games one at a time, and finding out which blocks could be skipped or answered from the header
+            for (int block = 0; block * GameHistory.BLOCK_RECORDS < games.size(); block++)
+            {
+               boolean anyMatch = false;
+               boolean allMatch = true;
+               
+               for (int j = block * GameHistory.BLOCK_RECORDS; j < Math.min((block + 1) * GameHistory.BLOCK_RECORDS, games.size()); j++)
+               {
+                  int[] game = games.get(j);
+                  boolean match = game[6] == question[0] && game[0] == question[1] && game[1] == question[2] 
+                     && game[2] >= question[3] && game[2] <= question[4];
+                  
+                  anyMatch |= match;
+                  allMatch &= match;
+                  if (match)
+                  {
+                     expectedGames++;
+                     if (game[3] == 1)
+                     {
+                        expectedWins++;
+                        expectedBest = Math.min(expectedBest, game[4]);
+                     }
+                  }
+               }
+               
+               headerUsed |= allMatch;
+               skipUsed |= !anyMatch && block == 1;
+            }
+            
+            same = summary.games == expectedGames && summary.wins == expectedWins && summary.bestWinTime == expectedBest;
+            passed &= same;
+            System.out.println("History summary of " + question[1] + "x" + question[2] + " topology " + question[0] + " with " + question[3] 
+               + " to " + question[4] + " mines: " + (same ? "passed" : "FAILED") + " (" + summary.games + " games, " + summary.wins 
+               + " wins, expected " + expectedGames + " games, " + expectedWins + " wins)");
+         }
+         
+         history.delete();
+      }
+      catch (IOException e)
+      {
+         System.out.println("History summary FAILED: " + e);
+         return false;
+      }
+      
+      if (!headerUsed || !skipUsed)
+      {
+         System.out.println("History summary FAILED: no question was answered from a block header, or no block was skipped.");
+      }
+      return passed && headerUsed && skipUsed;
+   }
+   
+   /*
+   checkBoardMetrics()
+   
+   returns boolean - true if every board passed
+   
+   This method checks BoardMetrics.analyze() on boards of every topology, size, and density against a plain
+   breadth first search that finds every opening on its own, counts the numbers that are not next to any
+   0, and adds them up for the 3BV. The sizes go up and down, so the union-find arrays that each thread
+   reuses are checked both when they are bigger than the board and when they have to grow.
+   */
+   static boolean checkBoardMetrics()
+   {
+      //Variable Declaration
+      int[] kinds = {Topology.SQUARE, Topology.TORUS, Topology.HEXAGONAL};
+      int[][] sizes = {{9, 9}, {300, 500}, {5, 7}, {16, 30}, {999, 999}, {30, 16}};
+      double[] densities = {0.05, 0.15, 0.3};
+      Random random = new Random(33);
+      boolean passed = true;
+      
+      for (int kind : kinds)
+      {
+         for (int[] size : sizes)
+         {
+            for (double density : densities)
+            {
+               Topology topology = new Topology(kind, size[0], size[1]);
+               int mines = Math.max(1, (int)(size[0] * size[1] * density));
+               char[] board = Minesweeper.createBoard(topology, mines, random);
+               BoardMetrics metrics = BoardMetrics.analyze(board, topology);
+               boolean[] seen = new boolean[topology.size];
+               int openings = 0;
+               int largestOpening = 0;
+               int isolatedNumbers = 0;
+               boolean same;
+               
+               for (int i = 0; i < topology.rows; i++)
+               {
+                  for (int j = 0; j < topology.cols; j++)
+                  {
+                     int square = topology.square(i, j);
+                     int[] offsets = topology.offsetsFor(square);
+                     
+                     //Finding the whole opening that starts at each 0 that is not part of an opening yet
+                     if (board[square] == '0' && !seen[square])
+                     {
+                        ArrayDeque<Integer> queue = new ArrayDeque<Integer>();
+                        int zeros = 0;
+                        
+                        openings++;
+                        seen[square] = true;
+                        queue.add(square);
+                        while (!queue.isEmpty())
+                        {
+                           int current = queue.poll();
+                           int[] around = topology.offsetsFor(current);
+                           zeros++;
+                           for (int k = 0; k < around.length; k++)
+                           {
+                              int neighbour = topology.neighbour(current, around[k]);
+                              if (board[neighbour] == '0' && !seen[neighbour])
+                              {
+                                 seen[neighbour] = true;
+                                 queue.add(neighbour);
+                              }
+                           }
+                        }
+                        largestOpening = Math.max(largestOpening, zeros);
+                     }
+                     //Counting the numbers that no opening reveals
+                     else if (board[square] != '0' && board[square] != 'X')
+                     {
+                        boolean nextToZero = false;
+                        for (int k = 0; k < offsets.length; k++)
+                        {
+                           nextToZero |= board[topology.neighbour(square, offsets[k])] == '0';
+                        }
+                        if (!nextToZero)
+                        {
+                           isolatedNumbers++;
+                        }
+                     }
+                  }
+               }
+               
+               same = metrics.openings == openings && metrics.largestOpening == largestOpening 
+                  && metrics.isolatedNumbers == isolatedNumbers && metrics.threeBV == openings + isolatedNumbers;
+               passed &= same;
+               if (!same || size[0] * size[1] >= 100000)
+               {
+                  System.out.println("Metrics on " + topology.rows + "x" + topology.cols + " topology " + kind + " with " + mines + " mines: " 
+                     + (same ? "passed" : "FAILED") + " (3BV " + metrics.threeBV + ", " + metrics.openings + " openings, biggest " 
+                     + metrics.largestOpening + ", " + metrics.isolatedNumbers + " isolated, expected 3BV " + (openings + isolatedNumbers) 
+                     + ", " + openings + " openings, biggest " + largestOpening + ", " + isolatedNumbers + " isolated)");
+               }
+            }
+         }
+      }
+      
+      System.out.println("Metrics on " + kinds.length * sizes.length * densities.length + " boards: " + (passed ? "passed" : "FAILED"));
+      return passed;
+   }
+}
\ No newline at end of file
@@ -19,6 +19,15 @@ Features List
       generated that does not have a mine in that location
    - If the user digs a square with value 0, the adjacent squares are automatically revealed, and the
       0 is replaced with a space (' ') for asthetic purposes
+   - If the user picks a number that already has that many flags around it, the program offers to
+      "chord" the square, digging every unflagged square around it at once
+   - Entering 0 as the row opens a menu of more options. This includes batch actions, which dig or
+      flag a list of squares or a whole rectangle of squares at once, and moving the view around
+      boards that are too big to fit on the screen
+   - The user can play today's challenge board instead of a random board. Every challenge player
+      starts from the same safe square, so players can race each other on the same layout
+   - Boards can be square, wrap around from each edge to the opposite edge, or be made of hexagons
+   - Up to 8 players can take turns clearing the same co-op board on one computer
 
 Change Log
    - Implemented text file storage system
@@ -36,14 +45,60 @@ Change Log
    - After much scrutiny, successfully implemented the auto reveal feature if the user digs
       a tile with value 0.
    - Updated some of the error messages which were vaguely written
+   - Added chording and batch dig/flag actions. A batch goes through one reveal pass, one win
+      check, and one printed board no matter how many squares it touches
+   - Added BoardPool, which generates boards on background threads so that "Play Again" does not
+      have to wait for createBoard(). Sizes that are played more often get more boards kept ready
+   - Added daily challenge boards. Everyone who plays the challenge for the same day and size gets
+      the same board, which is generated once from a seed and shared by every game of it. Each game
+      only keeps what the user has dug and flagged, in 2 bits per square
+   - Boards can now be up to 999x999. printBoard() only prints a 15x15 viewport that follows the
+      user's last move, along with a minimap of the whole board, and the row and column numbers
+      now line up for numbers with three digits
+   - Revealing 0s no longer scans the whole board over and over. revealZeros() only looks at the 0s
+      that were just dug, one ring at a time, and splits very big rings between several threads
+   - Every action, every batch of revealed squares, and the end of every game is now published on
+      GameEventBus. Saving the stats file is done by StatsWriter on its own thread, so the game never
+      waits for the file to be written
+   - Every finished game is now saved to <username>.history by GameHistoryWriter, including its size,
+      mines, result, time, and number of moves. Before each game, the user is shown their win rate on
+      similar boards and their best time on that exact board
+   - Every board is now scored by BoardMetrics when it is created, which finds its 3BV (the fewest
+      clicks needed to clear it), its openings, and its isolated numbers. The score is shown when the
+      game ends
+   - Boards are now flat char arrays with a border around them, laid out by Topology. Every part of the
+      game finds the neighbours of a square using the offsets from Topology, which also makes it
+      possible to play on wrap-around and hexagonal boards
+   - Added co-op boards, where several players take turns on one SharedBoard. SharedBoard can be dug
+      and flagged by many players at the same time without any locks, and MinesweeperChecks has dozens
+      of threads play the same board at once and checks that no square is revealed twice or missed and
+      that each game is won or lost exactly once
+   - The 4 method recursive loop is now a loop in playGame(), so a game no longer adds to the stack with
+      every move and boards up to 999x999 can be played to the end
 */
 
 import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+import java.util.concurrent.locks.*;
 import java.io.*;
+import java.time.*;
+import java.nio.*;
+import java.nio.channels.*;
+import java.lang.invoke.*;
 
 public class Minesweeper
 {
    
+   //Constants
+   static final int MAX_BOARD_SIZE = 999;          //Most rows or columns a board can have
+   static final int VIEWPORT_ROWS = 15;            //Most rows and columns that printBoard() prints at once
+   static final int VIEWPORT_COLS = 15;
+   static final int MINIMAP_SIZE = 12;             //Most rows and columns of blocks in the minimap
+   static final int PARALLEL_REVEAL_THRESHOLD = 1024;    //Fewest 0s in one ring of revealZeros() before the ring is split between threads
+   static final int PARALLEL_REVEAL_CHUNK = 256;   //Number of 0s given to each thread when a ring is split
+   static final int MAX_PLAYERS = 8;               //Most players that can take turns on a co-op board
+   
    //Static Variable Declaration
    //Static integers
    static int numberOfRows = -1;
@@ -60,23 +115,52 @@ public class Minesweeper
    
    static int rowChoice = -1;
    static int colChoice = -1;
-   static int digOrFlag = -1;
+   static int digOrFlag = -1;                      //1 = dig, 2 = flag, 3 = unflag, 4 = chord, 5 = batch dig, 6 = batch flag
    
    static int squaresDug;
    static int flagsRemaining;
    static int winCon = 0;                          //winCon = 0 if neither won nor lost, winCon = 1 if won, winCon = 2 if lost
    
+   static int[] batchCells = new int[0];           //Squares in the current batch action, stored as their index in publicBoard
+   static int batchSize = 0;                       //Number of squares in batchCells that are actually part of the batch
+   static int squaresChanged = 0;                  //Number of squares dug, flagged, or unflagged by the most recent action
+   
+   static int viewTop = 0;                         //Index of the first row shown in the viewport
+   static int viewLeft = 0;                        //Index of the first column shown in the viewport
+   static int blockRows, blockCols;                //Number of rows and columns of squares summarized by each block of the minimap
+   static int minimapRows, minimapCols;            //Number of rows and columns of blocks in the minimap
+   static int[] minimapDug;                        //Number of squares dug in each block of the minimap
+   static int[] minimapSafe;                       //Number of squares that are not mines in each block of the minimap
+   
+   static int[] revealQueue = new int[64];         //0s that have been dug but not revealed around yet, stored as their index in publicBoard
+   static int revealQueueSize = 0;
+   static int[] revealRing = new int[64];          //The ring of 0s that revealZeros() is currently revealing around
+   static AtomicLongArray revealedBits;            //One bit for every square that has been dug or flagged, only used while a ring is split between threads
+   static int squaresRevealed = 0;                 //Number of squares dug by the action that updateBoard() is currently applying
+   static int movesMade = 0;                       //Number of actions the user has made in the current game
+   static long gameStartTime = 0;                  //System.currentTimeMillis() when the current game started
+   
+   //Static objects
+   static final GameEventBus eventBus = new GameEventBus(1024);
+   static BoardMetrics boardMetrics;               //Difficulty of the board that is currently being played
+   static Topology topology;                       //How the squares of the current board are laid out and connected
+   static SessionMetrics sessionMetrics;
+   static PlayerBoard publicBoard;                 //What the user has dug and flagged on privateBoard
+   static SharedBoard sharedBoard;                 //The board that every player is clearing in a co-op game
+   
    //Static chars
-   static char[][] privateBoard;
-   static char[][] publicBoard;
+   static char[] privateBoard;                     //Laid out by topology, so square i-j is privateBoard[topology.square(i, j)]
    
    //Static booleans
    static boolean inputValid = false;              //Generic variable used to take user input through do-while loops
+   static boolean challengeMode = false;           //Is true if the user is playing today's challenge board instead of a random board
+   static boolean coopMode = false;                //Is true if several players are taking turns on a co-op board
    static boolean firstDig = true;
    static boolean firstDigMine = true;             //Is true if the user's first dig is a mine. Is set to true by default and becomes 
                                                    //false when it is confirmed that the first dig is not a mine.
    //Static Strings
    static String fileName = "";
+   static String historyFileName = "";
    
    /*
    outputStats()
@@ -98,16 +182,65 @@ public class Minesweeper
    /*
    createBoard()
    
-   returns char[][] - The returned 2D char array is stored as a static array called privateBoard, and
+   returns char[] - The returned char array is stored as a static array called privateBoard, and
    represents the Minesweeper board that the player has requested if it was fully unrevealed.
    
-   This method creates and returns a 2D char array with the number rows and columns equal to the user's
-   input from the main method. It then generates random locations and replaces those locations in the 
-   char array with 'X' signifying mines until the number of mines is equal to the user's input from the
-   main method. Finally, the method fills the remaining empty squares based on how many mines are 
-   adjacent to each tile.
+   This method returns a board with the topology and number of mines equal to the user's input from
+   the main method. The board is taken from BoardPool, which keeps boards ready in the background so
+   that a new game can start right away, and only falls back to createBoard(Topology topology, int mines)
+   when there is no board ready for this size. The board's difficulty, which BoardPool scored along with
+   the board, is stored in boardMetrics.
+   */
+   public static char[] createBoard()
+   {
+      BoardPool.ReadyBoard ready = BoardPool.take(topology, numberOfMines);
+      char[] privateBoard = ready.board;
+      boardMetrics = ready.metrics;
+      
+      /*The use of the if statement prevents this method from outputting this line each time a new board is generated.
+      Otherwise, if the user's first dig is a mine, a new board is generated and this message outputs again. Instead,
+      the process of generating the new board should be done in secret.*/
+      if (!firstDigMine)
+      {
+         System.out.println("The mines have been planted!");
+      }
+      
+      return privateBoard;
+   }
+   
+   /*
+   createBoard(Topology topology, int mines)
+   
+   Topology topology - The size and layout of the board
+   int mines - The number of mines on the board
+   
+   returns char[] - A fully unrevealed Minesweeper board
+   
+   This method creates a random board using createBoard(Topology topology, int mines, Random random)
+   with the calling thread's own random number generator. This method does not use any static variables,
+   so it is safe for BoardPool to call it from its background threads.
+   */
+   public static char[] createBoard(Topology topology, int mines)
+   {
+      return createBoard(topology, mines, ThreadLocalRandom.current());
+   }
+   
+   /*
+   createBoard(Topology topology, int mines, Random random)
+   
+   Topology topology - The size and layout of the board
+   int mines - The number of mines on the board
+   Random random - The random number generator used to plant the mines
+   
+   returns char[] - A fully unrevealed Minesweeper board
+   
+   This method creates and returns a char array laid out by topology. It then generates random locations
+   and replaces those locations in the char array with 'X' signifying mines until the number of mines is
+   equal to mines. Finally, the method fills the remaining empty squares based on how many mines are
+   adjacent to each tile, using the neighbor offsets from topology. Two calls with random number generators
+   made from the same seed always create the same board, which is what ChallengeBoard relies on.
    */
-   public static char[][] createBoard()
+   public static char[] createBoard(Topology topology, int mines, Random random)
    {
       //Variable and Constant Declaration
       final int RADIX = 10;
@@ -115,54 +248,44 @@ public class Minesweeper
       int minesPlaced = 0;
       int mineCount = 0;
       int x, y;                        //Random numbers used to plant mines
-      char[][] privateBoard = new char[numberOfRows][numberOfCols];
+      int square;
+      int[] offsets;
+      char[] privateBoard = topology.newBoard('0');
       
-      while (minesPlaced < numberOfMines)
+      while (minesPlaced < mines)
       {
          //Generating random numbers for x and y
-         x = (int)(Math.random() * numberOfRows);
-         y = (int)(Math.random() * numberOfCols);
+         x = random.nextInt(topology.rows);
+         y = random.nextInt(topology.cols);
          
          //Randomly filling in privateBoard with mines (indicated as 'X')
-         if (privateBoard[x][y] != 'X')
+         if (privateBoard[topology.square(x, y)] != 'X')
          {
-            privateBoard[x][y] = 'X';
+            privateBoard[topology.square(x, y)] = 'X';
             minesPlaced++;
          }
       }
       
-      /*The use of the if statement prevents this method from outputting this line each time a new board is generated.
-      Otherwise, if the user's first dig is a mine, a new board is generated and this message outputs again. Instead,
-      the process of generating the new board should be done in secret.*/
-      if (!firstDigMine)
-      {
-         System.out.println("The mines have been planted!");
-      }
-      
       //Filling in the remaining squares of privateBoard with numbers based on how many adjacent mines there are
-      for (int i = 0; i < numberOfRows; i++)
+      for (int i = 0; i < topology.rows; i++)
       {
-         for (int j = 0; j < numberOfCols; j++)
+         offsets = topology.offsetsFor(topology.square(i, 0));
+         square = topology.square(i, 0);
+         for (int j = 0; j < topology.cols; j++, square++)
          {
-            if (privateBoard[i][j] != 'X')
+            if (privateBoard[square] != 'X')
             {
-               for (int k = i-1; k <= i+1; k++)
+               for (int k = 0; k < offsets.length; k++)
                {
-                  for (int l = j-1; l <= j+1; l++)
+                  if (privateBoard[topology.neighbour(square, offsets[k])] == 'X')
                   {
-                     if (k >= 0 && l >= 0 && k < numberOfRows && l < numberOfCols)
-                     {
-                        if (privateBoard[k][l] == 'X')
-                        {
-                           mineCount++;
-                        }
-                     }
+                     mineCount++;
                   }
                }
                
                //The Character.forDigit(int digit, int RADIX) method converts an integer (digit) of base RADIX
                //into a char value. It is used to make the mineCount integer compatible with the char array.
-               privateBoard[i][j] = Character.forDigit(mineCount, RADIX);
+               privateBoard[square] = Character.forDigit(mineCount, RADIX);
                mineCount = 0;
             }
          }
@@ -174,59 +297,228 @@ public class Minesweeper
    /*
    printBoard()
    
-   This method outputs the elements of the static 2D char array publicBoard, which represents
-   the current state of the user's minesweeper game along with the board's formatting. This method
-   is part of a 4 method recursive loop which begins with the main method calling on printBoard().
+   This method outputs the part of the static PlayerBoard publicBoard that is inside the viewport,
+   which represents the current state of the user's minesweeper game along with the board's formatting.
+   Before printing, the viewport is moved so that the square the user just chose is inside it. This method
+   is part of the 4 method game loop in playGame(), and is called at the start of every turn.
    */
    public static void printBoard ()
    {
+      //Following the user's last move with the viewport
+      if (rowChoice > 0 && colChoice > 0)
+      {
+         centerView(rowChoice-1, colChoice-1);
+      }
+      
+      printViewport();
+   }
+   
+   /*
+   printViewport()
+   
+   This method outputs the rows and columns of publicBoard that are inside the viewport, which is at most
+   VIEWPORT_ROWS by VIEWPORT_COLS squares starting at viewTop and viewLeft. Boards that fit inside the
+   viewport are printed in full, exactly like before. For bigger boards, printMinimap() is called to show
+   where the viewport is on the whole board. The amount of output only depends on the size of the viewport
+   and the minimap, and not on the size of the board.
+   */
+   public static void printViewport()
+   {
+      //Variable Declaration
+      int lastRow = Math.min(viewTop + VIEWPORT_ROWS, numberOfRows);
+      int lastCol = Math.min(viewLeft + VIEWPORT_COLS, numberOfCols);
+      int labelWidth = Math.max(3, String.valueOf(numberOfRows).length() + 1);    //Width of the row numbers, which is 3 for boards with less than 100 rows
+      String labelSpace = String.format("%" + labelWidth + "s", "");
       
       //Column Numbers
-      System.out.print("   ");
-      for (int i = 1; i <= numberOfCols; i++)
+      System.out.print(labelSpace + "  ");
+      for (int i = viewLeft+1; i <= lastCol; i++)
       {
-         System.out.printf("  %-2d", i);
+         System.out.printf("%-4d", i);
       }
       System.out.println("");
       
       //Top Row (---)
-      System.out.print("   ");
-      for (int i = 1; i <= numberOfCols; i++)
+      System.out.print(labelSpace);
+      for (int i = viewLeft+1; i <= lastCol; i++)
       {
          System.out.print("----");
       }
       System.out.print("-\n");
       
-      //Actual Board
-      for (int i = 0; i < numberOfRows; i++)
+      //Actual Board (on hexagonal boards, every odd row is shifted half a square to the right)
+      for (int i = viewTop; i < lastRow; i++)
       {
-         System.out.printf("%-3d| ", i+1);
-         for (int j = 0; j < numberOfCols; j++)
+         System.out.printf("%-" + labelWidth + "d| ", i+1);
+         if (topology.kind == Topology.HEXAGONAL && i % 2 == 1)
+         {
+            System.out.print("  ");
+         }
+         for (int j = viewLeft; j < lastCol; j++)
          {
-            System.out.print(publicBoard[i][j] + " | ");
+            System.out.print(publicBoard.shown(topology.square(i, j)) + " | ");
          }
          System.out.println("");
       }
       
       //Bottom Row (---)
-      System.out.print("   ");
-      for (int i = 1; i <= numberOfCols; i++)
+      System.out.print(labelSpace);
+      for (int i = viewLeft+1; i <= lastCol; i++)
       {
          System.out.print("----");
       }
       System.out.print("-\n");
       
-      areYouWinningSon();
+      if (numberOfRows > VIEWPORT_ROWS || numberOfCols > VIEWPORT_COLS)
+      {
+         printMinimap(lastRow, lastCol);
+      }
+   }
+   
+   /*
+   printMinimap(int lastRow, int lastCol)
+   
+   int lastRow - The index of the row after the last row shown in the viewport
+   int lastCol - The index of the column after the last column shown in the viewport
+   
+   This method outputs a summary of the whole board where each character is a block of squares. Blocks on
+   the screen are shown as '@', blocks that have not been touched as '#', blocks that have been partly dug as
+   '+', and blocks where every square that is not a mine has been dug as '.'. The number of squares dug in each
+   block is kept up to date by digSquare(int square), so this method never has to look at the board itself.
+   */
+   public static void printMinimap(int lastRow, int lastCol)
+   {
+      //Variable Declaration
+      StringBuilder line;
+      int block;
+      
+      System.out.println("Showing rows " + (viewTop+1) + "-" + lastRow + " and columns " + (viewLeft+1) + "-" + lastCol + " of " 
+         + numberOfRows + "x" + numberOfCols + ".");
+      System.out.println("Map (@ = on screen, # = untouched, + = partly dug, . = cleared):");
+      
+      for (int i = 0; i < minimapRows; i++)
+      {
+         line = new StringBuilder("   ");
+         for (int j = 0; j < minimapCols; j++)
+         {
+            block = i * minimapCols + j;
+            
+            if ((i+1) * blockRows > viewTop && i * blockRows < lastRow && (j+1) * blockCols > viewLeft && j * blockCols < lastCol)
+            {
+               line.append('@');
+            }
+            else if (minimapDug[block] >= minimapSafe[block])
+            {
+               line.append('.');
+            }
+            else if (minimapDug[block] == 0)
+            {
+               line.append('#');
+            }
+            else
+            {
+               line.append('+');
+            }
+         }
+         System.out.println(line);
+      }
+   }
+   
+   /*
+   resetViewport()
+   
+   This method moves the viewport back to the top left corner of the board and sets up the minimap for a
+   new board by counting the number of squares that are not mines in each block of privateBoard. It is called
+   by the main method every time a new publicBoard is created.
+   */
+   public static void resetViewport()
+   {
+      viewTop = 0;
+      viewLeft = 0;
+      
+      //Splitting the board into at most MINIMAP_SIZE by MINIMAP_SIZE blocks (rounding up)
+      blockRows = (numberOfRows + MINIMAP_SIZE - 1) / MINIMAP_SIZE;
+      blockCols = (numberOfCols + MINIMAP_SIZE - 1) / MINIMAP_SIZE;
+      minimapRows = (numberOfRows + blockRows - 1) / blockRows;
+      minimapCols = (numberOfCols + blockCols - 1) / blockCols;
+      minimapDug = new int[minimapRows * minimapCols];
+      minimapSafe = new int[minimapRows * minimapCols];
+      
+      for (int i = 0; i < numberOfRows; i++)
+      {
+         for (int j = 0; j < numberOfCols; j++)
+         {
+            if (privateBoard[topology.square(i, j)] != 'X')
+            {
+               minimapSafe[(i / blockRows) * minimapCols + j / blockCols]++;
+            }
+         }
+      }
+   }
+   
+   /*
+   centerView(int i, int j)
+   
+   int i - The row index of the square to center the viewport on
+   int j - The column index of the square to center the viewport on
+   
+   This method moves the viewport so that square i-j is in its center, without letting the viewport go past
+   the edges of the board.
+   */
+   public static void centerView(int i, int j)
+   {
+      viewTop = Math.max(0, Math.min(i - VIEWPORT_ROWS / 2, numberOfRows - VIEWPORT_ROWS));
+      viewLeft = Math.max(0, Math.min(j - VIEWPORT_COLS / 2, numberOfCols - VIEWPORT_COLS));
+   }
+   
+   /*
+   digSquare(int square)
+   
+   int square - The index of the square being dug in publicBoard
+   
+   This method reveals the square on publicBoard, which then shows it from privateBoard, and counts it as dug in its
+   block of the minimap. If the square is a 0, it is also added to revealQueue so that revealZeros() can reveal
+   the squares around it.
+   */
+   public static void digSquare(int square)
+   {
+      publicBoard.set(square, PlayerBoard.REVEALED);
+      minimapDug[(topology.row(square) / blockRows) * minimapCols + topology.col(square) / blockCols]++;
+      squaresRevealed++;
+      
+      if (privateBoard[square] == '0')
+      {
+         queueReveal(square);
+      }
+   }
+   
+   /*
+   queueReveal(int square)
+   
+   int square - The index of a 0 in publicBoard that has just been dug
+   
+   This method adds the 0 to revealQueue, doubling the size of revealQueue if it is full. revealQueue only
+   holds the 0s that are waiting to be revealed around, which is usually a small part of the board, so it
+   is only made as big as it has needed to be so far instead of being the size of the whole board.
+   */
+   public static void queueReveal(int square)
+   {
+      if (revealQueueSize == revealQueue.length)
+      {
+         revealQueue = Arrays.copyOf(revealQueue, revealQueue.length * 2);
+      }
+      revealQueue[revealQueueSize] = square;
+      revealQueueSize++;
    }
    
    /*
    areYouWinningSon()
    
-   This method checks the 2D array publicBoard to see if the user has won, lost, or neither each
+   This method checks publicBoard to see if the user has won, lost, or neither each
    time the user digs or flags a square and it is revelaed on publicBoard. The program then changes
    the value of the static int variable winCon and calls on the methods winMessage() or loseMessage()
-   if winCon = 1 or 2 respectively. This method is part of a 4 method recursive loop, and this method
-   gets called by printBoard().
+   if winCon = 1 or 2 respectively. This method is part of the 4 method game loop in playGame(), and
+   this method gets called after printBoard().
    */
    public static void areYouWinningSon()
    {
@@ -238,13 +530,13 @@ public class Minesweeper
       {
          for (int j = 0; j < numberOfCols; j++)
          {
-            //Setting winCon = 2 if an X appears on publicBoard (meaning the user has dug a mine)
-            if (publicBoard[i][j] == 'X')
+            //Setting winCon = 2 if an X is revealed on publicBoard (meaning the user has dug a mine)
+            if (publicBoard.state(topology.square(i, j)) == PlayerBoard.REVEALED && privateBoard[topology.square(i, j)] == 'X')
             {
                winCon = 2;
             }
-            //Incrementing squaresDug if publicBoard at that element is a number
-            else if (publicBoard[i][j] != '_' && publicBoard[i][j] != 'M')
+            //Incrementing squaresDug if publicBoard at that element is a revealed number
+            else if (publicBoard.state(topology.square(i, j)) == PlayerBoard.REVEALED)
             {
                squaresDug++;
             }
@@ -265,9 +557,21 @@ public class Minesweeper
       //Outputting an appropriate message based on the user's previous action if the user has neither won nor lost
       else
       {
-         if (rowChoice != -1 && colChoice != -1 && digOrFlag != 2 && digOrFlag != 3)
+         if (digOrFlag == 4)
          {
-            System.out.println(rowChoice + "-" + colChoice + " is surrounded by " + privateBoard[rowChoice-1][colChoice-1] + " mines!");
+            System.out.println("Chorded " + rowChoice + "-" + colChoice + " and dug " + squaresChanged + " squares around it!");
+         }
+         else if (digOrFlag == 5)
+         {
+            System.out.println("Dug " + squaresChanged + " squares.");
+         }
+         else if (digOrFlag == 6)
+         {
+            System.out.println("Flagged " + squaresChanged + " squares.");
+         }
+         else if (rowChoice != -1 && colChoice != -1 && digOrFlag != 2 && digOrFlag != 3)
+         {
+            System.out.println(rowChoice + "-" + colChoice + " is surrounded by " + privateBoard[topology.square(rowChoice-1, colChoice-1)] + " mines!");
          }
          else if (digOrFlag == 2)
          {
@@ -280,8 +584,6 @@ public class Minesweeper
          
          //Outputting the number of flags remaining that the user has
          System.out.println("Flags Remaining: " + flagsRemaining + "\n");
-         
-         digOrFlag();
       }
       
    }
@@ -292,7 +594,10 @@ public class Minesweeper
    This method takes user inputs for a row and column number that the user would like to make an action on.
    It then provides the user with an appropriate list of options (Ex. Dig, Flag, Unflag, Keep flagged) depending
    on if the square the user chose has already been revelaed, is currently empty, or is currently flagged. This 
-   method is part of a 4 method recursive loop, and this method gets called by areYouWinningSon().
+   method is part of the 4 method game loop in playGame(), and this method gets called after areYouWinningSon().
+   
+   If the user chooses row 0, they are sent to moreOptions() to set up a batch action or move the view instead. If the user
+   chooses a number that can be chorded (see canChord(int i, int j)), they are offered to chord it.
    */
    public static void digOrFlag()
    {
@@ -300,6 +605,7 @@ public class Minesweeper
       Scanner sc = new Scanner(System.in);
       boolean alreadyDug = false;
       boolean alreadyFlagged = false;
+      boolean goBack = false;
       
       digOrFlag = 0;
       
@@ -311,27 +617,39 @@ public class Minesweeper
          {
             alreadyDug = false;
             alreadyFlagged = false;
+            goBack = false;
             try
             {
-               System.out.print("Choose a row:  ");
+               System.out.print("Choose a row (or 0 for more options):  ");
                rowChoice = sc.nextInt();
                
-               if (rowChoice > 0 && rowChoice <= numberOfRows)
+               if (rowChoice >= 0 && rowChoice <= numberOfRows)
                {
                   inputValid = true;
                }
                else
                {
-                  System.out.println("Invalid input. Please enter an integer between 1 and " + numberOfRows + " (inclusive)");
+                  System.out.println("Invalid input. Please enter an integer between 0 and " + numberOfRows + " (inclusive)");
                }
             }
             catch (InputMismatchException e)
             {
-               System.out.println("Invalid input. Please enter an integer between 1 and " + numberOfRows + " (inclusive)");
+               System.out.println("Invalid input. Please enter an integer between 0 and " + numberOfRows + " (inclusive)");
                sc.nextLine();
             }
          } while (!inputValid);
          
+         //Showing more options if the user chose row 0. A batch action is then applied by a single call to updateBoard()
+         if (rowChoice == 0)
+         {
+            if (moreOptions(sc))
+            {
+               return;
+            }
+            goBack = true;
+            continue;
+         }
+         
          //Taking input for colChoice
          inputValid = false;
          do
@@ -358,7 +676,7 @@ public class Minesweeper
          } while (!inputValid);
          
          //Outputting an appropriate message if the square is currently flagged and taking input for digOrFlag
-         if (publicBoard[rowChoice-1][colChoice-1] == 'M')
+         if (publicBoard.state(topology.square(rowChoice-1, colChoice-1)) == PlayerBoard.FLAGGED)
          {
             inputValid = false;
             do
@@ -399,18 +717,55 @@ public class Minesweeper
                flagsRemaining++;
             }
          }
+         //Offering to chord the square if it is a number with the right amount of flags around it
+         else if (canChord(rowChoice-1, colChoice-1))
+         {
+            inputValid = false;
+            do
+            {
+               try
+               {
+                  System.out.print("This square has " + privateBoard[topology.square(rowChoice-1, colChoice-1)] + " flags around it. Would you like to [1] CHORD it or [2] CHOOSE A DIFFERENT SQUARE?  ");
+                  digOrFlag = sc.nextInt();
+                  
+                  if (digOrFlag == 1 || digOrFlag == 2)
+                  {
+                     inputValid = true;
+                  }
+                  else
+                  {
+                     System.out.println("Invalid input. Please enter either 1 or 2.");
+                  }
+               }
+               catch (InputMismatchException e)
+               {
+                  System.out.println("Invalid input. Please enter either 1 or 2.");
+                  sc.nextLine();
+               }
+            } while (!inputValid);
+            
+            if (digOrFlag == 1)
+            {
+               digOrFlag = 4;
+            }
+            else
+            {
+               System.out.println("");
+               alreadyDug = true;
+            }
+         }
          //Outputting an appropriate message if the square has already been dug
-         else if (publicBoard[rowChoice-1][colChoice-1] != '_')
+         else if (publicBoard.state(topology.square(rowChoice-1, colChoice-1)) != PlayerBoard.HIDDEN)
          {
             System.out.println("You have already dug this square. Please try again.\n");
             alreadyDug = true;
          }
          
-      } while (alreadyDug || alreadyFlagged);
+      } while (alreadyDug || alreadyFlagged || goBack);
       
       //Taking input for digOrFlag when the user enters a valid input
       inputValid = false;
-      if (publicBoard[rowChoice-1][colChoice-1] != 'M')
+      if (publicBoard.state(topology.square(rowChoice-1, colChoice-1)) == PlayerBoard.HIDDEN)
       {
          do
          {
@@ -441,338 +796,958 @@ public class Minesweeper
          } while (!inputValid);
       }
       
-      updateBoard();
-      
    }
    
    /*
-   updateBoard()
+   moreOptions(Scanner sc)
    
-   This method updates publicBoard based on the user's request. If the user wants to dig, publicBoard
-   at that element becomes equal to privateBoard, (which is the full board created in the method 
-   createBoard()). If the user wants to flag or unflag, publicBoard at that element becomes 'M' or 
-   '_' respectively. This method is also responsible for making sure the user's first guess is never
-   a mine by instantly returning to the main method if the first guess is a mine. It is also responsible
-   for automatically revealing the surrounding tiles if the user digs a tile with the value of 0 by
-   calling on revealZero(int i, int j). This method is part of a 4 method recursive loop, and this method 
-   gets called by digOrFlag().
+   Scanner sc - The Scanner that digOrFlag() is using to take user input
+   
+   returns boolean - true if the user has set up a batch action, and false if the user would like to go
+   back and choose a single square instead.
+   
+   This method asks the user whether they would like to dig or flag a batch of squares, or move the view
+   using moveView(Scanner sc). For a batch action, the method then takes one line of input listing the
+   squares as row-col pairs (Ex. 3-4 5-6) and/or rectangles written as two opposite corners (Ex. 2-2:4-5).
+   Only squares that are still unrevealed and unflagged are kept, and they are stored in the static array
+   batchCells so that updateBoard() can apply the whole batch at once.
    */
-   public static void updateBoard()
+   public static boolean moreOptions(Scanner sc)
    {
       //Variable Declaration
-      boolean noZero;
+      int batchAction = -1;
+      int fromRow, fromCol, toRow, toCol;
+      BitSet chosen;                   //Makes sure that a square listed more than once is only added to the batch once
+      String[] squares;
+      String[] corners, from, to;
       
-      //Checking if the user's first dig is a mine by assigning new values for firstDigMine and firstDig appropriately
-      if (firstDigMine && digOrFlag == 1 && privateBoard[rowChoice-1][colChoice-1] == 'X')
-      {
-         firstDigMine = true;
-         firstDig = false;
-         return;
-      }
-      else
+      //Taking input for the type of batch action
+      inputValid = false;
+      do
       {
-         firstDigMine = false;
-         firstDig = false;
-      }
+         try
+         {
+            System.out.print("Would you like to [1] BATCH DIG, [2] BATCH FLAG, [3] MOVE THE VIEW, or [4] GO BACK?  ");
+            batchAction = sc.nextInt();
+            
+            if (batchAction >= 1 && batchAction <= 4)
+            {
+               inputValid = true;
+            }
+            else
+            {
+               System.out.println("Invalid input. Please enter either 1, 2, 3, or 4");
+            }
+         }
+         catch (InputMismatchException e)
+         {
+            System.out.println("Invalid input. Please enter either 1, 2, 3, or 4");
+            sc.nextLine();
+         }
+      } while (!inputValid);
       
-      //If user has dug this square, reveal it
-      if (digOrFlag == 1)
+      if (batchAction == 3)
       {
-         publicBoard[rowChoice-1][colChoice-1] = privateBoard[rowChoice-1][colChoice-1];
+         moveView(sc);
+         return false;
       }
-      //If user has flagged this square, replace it with 'M'
-      else if (digOrFlag == 2)
+      else if (batchAction == 4)
       {
-         publicBoard[rowChoice-1][colChoice-1] = 'M';
+         System.out.println("");
+         return false;
       }
-      //If user wants to unflage the square, replace it with '_'
-      else
+      
+      //First guess security in updateBoard() only looks at a single square, so the first dig has to be done on its own
+      if (batchAction == 1 && firstDigMine)
       {
-         publicBoard[rowChoice-1][colChoice-1] = '_';
+         System.out.println("Please dig your first square on its own before digging a batch.\n");
+         return false;
       }
       
-      //Scanning every element of publicBoard
+      //Clearing the rest of the line left behind by nextInt()
+      sc.nextLine();
+      
+      //Taking input for the squares in the batch
+      inputValid = false;
       do
       {
-         noZero = true;
-         //If a 0 was dug, reveal the surrounding squares automatically by calling on revealZero(i, j)
-         for (int i = 0; i < numberOfRows; i++)
+         System.out.println("Enter squares as row-col pairs separated by spaces (Ex. 3-4 5-6) and/or rectangles as row-col:row-col (Ex. 2-2:4-5)");
+         squares = sc.nextLine().trim().split("\\s+");
+         chosen = new BitSet();
+         batchSize = 0;
+         inputValid = true;
+         
+         try
          {
-            for (int j = 0; j < numberOfCols; j++)
+            for (int i = 0; i < squares.length && inputValid; i++)
             {
-               if (publicBoard[i][j] == '0')
+               //A single square is treated as a rectangle whose two corners are the same square
+               corners = squares[i].split(":");
+               from = corners[0].split("-");
+               to = corners[corners.length-1].split("-");
+               
+               if (corners.length > 2 || from.length != 2 || to.length != 2)
+               {
+                  inputValid = false;
+               }
+               else
                {
-                  revealZero(i, j);
-                  noZero = false;
+                  fromRow = Math.min(Integer.parseInt(from[0]), Integer.parseInt(to[0]));
+                  toRow = Math.max(Integer.parseInt(from[0]), Integer.parseInt(to[0]));
+                  fromCol = Math.min(Integer.parseInt(from[1]), Integer.parseInt(to[1]));
+                  toCol = Math.max(Integer.parseInt(from[1]), Integer.parseInt(to[1]));
+                  
+                  if (fromRow < 1 || fromCol < 1 || toRow > numberOfRows || toCol > numberOfCols)
+                  {
+                     inputValid = false;
+                  }
+                  else
+                  {
+                     //Adding every unrevealed and unflagged square in the rectangle to the batch
+                     for (int k = fromRow-1; k < toRow; k++)
+                     {
+                        for (int l = fromCol-1; l < toCol; l++)
+                        {
+                           if (!chosen.get(topology.square(k, l)) && publicBoard.state(topology.square(k, l)) == PlayerBoard.HIDDEN)
+                           {
+                              chosen.set(topology.square(k, l));
+                              if (batchSize == batchCells.length)
+                              {
+                                 batchCells = Arrays.copyOf(batchCells, Math.max(64, batchCells.length * 2));
+                              }
+                              batchCells[batchSize] = topology.square(k, l);
+                              batchSize++;
+                           }
+                        }
+                     }
+                  }
                }
             }
          }
-      } while (!noZero);
+         catch (NumberFormatException e)
+         {
+            inputValid = false;
+         }
+         
+         if (!inputValid)
+         {
+            System.out.println("Invalid input. Rows must be between 1 and " + numberOfRows + " and columns must be between 1 and " + numberOfCols + " (inclusive)");
+         }
+      } while (!inputValid);
       
-      printBoard();
+      if (batchSize == 0)
+      {
+         System.out.println("None of those squares are unrevealed and unflagged. Please try again.\n");
+         return false;
+      }
+      
+      //Assigning digOrFlag so that updateBoard() knows which batch action to apply
+      if (batchAction == 1)
+      {
+         digOrFlag = 5;
+      }
+      else
+      {
+         digOrFlag = 6;
+         flagsRemaining -= batchSize;
+      }
+      
+      return true;
    }
    
    /*
-   revealZero()
+   moveView(Scanner sc)
    
-   int rowIndex - The row index number of an element in publicBoard equal to '0'
-   int colIndex - The column index number of an element in publicBoard equal to '0'
+   Scanner sc - The Scanner that digOrFlag() is using to take user input
    
-   This method is an extension of the method updateBoard. It gets called when the user digs a tile
-   with the value 0. This method updates the value of publicBoard for those surrounding squares and
-   changes the value of 0 to become ' '. This is both for asthetic purposes, and also so the program
-   knows that this tile has been checked already and does not repeatedly call on this method, since it
-   is called whenever publicBoard contains an element with the value '0'.
+   This method moves the viewport half of its size up, down, left, or right, or centers it on a square that
+   the user enters, and then prints the new viewport. It does not count as an action, so the user is sent
+   back to choosing a row afterwards.
    */
-   public static void revealZero(int rowIndex, int colIndex)
+   public static void moveView(Scanner sc)
    {
-      //Reveal all surrounding squares by udpating publicBoard
-      for (int i = rowIndex-1; i <= rowIndex+1; i++)
+      //Variable Declaration
+      int direction = -1;
+      String[] square;
+      
+      inputValid = false;
+      do
       {
-         for (int j = colIndex-1; j <= colIndex+1; j++)
+         try
          {
-            if (i >= 0 && j >= 0 && i < numberOfRows && j < numberOfCols)
+            System.out.print("Would you like to move the view [1] UP, [2] DOWN, [3] LEFT, [4] RIGHT, or [5] TO A SQUARE?  ");
+            direction = sc.nextInt();
+            
+            if (direction >= 1 && direction <= 5)
             {
-               if (i == rowIndex && j == colIndex)
-               {
-                  publicBoard[i][j] = ' ';
-               }
-               else if (publicBoard[i][j] == '_')
+               inputValid = true;
+            }
+            else
+            {
+               System.out.println("Invalid input. Please enter either 1, 2, 3, 4, or 5");
+            }
+         }
+         catch (InputMismatchException e)
+         {
+            System.out.println("Invalid input. Please enter either 1, 2, 3, 4, or 5");
+            sc.nextLine();
+         }
+      } while (!inputValid);
+      
+      //Moving by half of the viewport at a time. centerView() is used on the new center of the viewport to keep it on the board
+      if (direction >= 1 && direction <= 4)
+      {
+         if (direction == 1)
+         {
+            viewTop -= VIEWPORT_ROWS / 2;
+         }
+         else if (direction == 2)
+         {
+            viewTop += VIEWPORT_ROWS / 2;
+         }
+         else if (direction == 3)
+         {
+            viewLeft -= VIEWPORT_COLS / 2;
+         }
+         else
+         {
+            viewLeft += VIEWPORT_COLS / 2;
+         }
+         centerView(viewTop + VIEWPORT_ROWS / 2, viewLeft + VIEWPORT_COLS / 2);
+      }
+      else
+      {
+         //Clearing the rest of the line left behind by nextInt()
+         sc.nextLine();
+         
+         inputValid = false;
+         do
+         {
+            System.out.print("Enter the square to center the view on as row-col (Ex. 40-120):  ");
+            square = sc.nextLine().trim().split("-");
+            
+            try
+            {
+               if (square.length == 2 && Integer.parseInt(square[0]) >= 1 && Integer.parseInt(square[0]) <= numberOfRows 
+                  && Integer.parseInt(square[1]) >= 1 && Integer.parseInt(square[1]) <= numberOfCols)
                {
-                  publicBoard[i][j] = privateBoard[i][j];
+                  centerView(Integer.parseInt(square[0]) - 1, Integer.parseInt(square[1]) - 1);
+                  inputValid = true;
                }
-               
             }
-         }
+            catch (NumberFormatException e)
+            {
+               inputValid = false;
+            }
+            
+            if (!inputValid)
+            {
+               System.out.println("Invalid input. Rows must be between 1 and " + numberOfRows + " and columns must be between 1 and " + numberOfCols + " (inclusive)");
+            }
+         } while (!inputValid);
       }
+      
+      System.out.println("");
+      printViewport();
+      System.out.println("");
    }
    
    /*
-   winMessage()
+   canChord(int i, int j)
    
-   This method outputs a message for the user if they have dug all the squares that
-   are not mines. It then calls on updateStats() to update the user's stats by overwriting
-   the user's text file.
-   */
-   public static void winMessage()
-   {
-      System.out.println("You cleared the field! YOU WIN!! \\o/");
-      System.out.println("Your stats are now...");
-      updateStats();
-   }
+   int i - The row index of a square on publicBoard
+   int j - The column index of a square on publicBoard
    
-   /*
-   loseMessage()
+   returns boolean - true if the square can be chorded, false otherwise
    
-   This method outputs a message for the user if they have dug a mine. It then calls on 
-   updateStats() to update the user's stats by overwriting the user's text file.
+   A square can be chorded if it is a revealed number, the number of flags around it is equal to that
+   number, and there is at least one unrevealed square around it that is left to dig. The squares around
+   it are the neighbours given by topology, so this works the same on every kind of board.
    */
-   public static void loseMessage()
+   public static boolean canChord(int i, int j)
    {
-      System.out.println(" *** BOOOOOOOOOM! ***  X_x");
-      System.out.println("You hit a mine and lost. Better luck next time!");
-      System.out.println("\nYour stats are now...");
-      updateStats();
+      //Variable and Constant Declaration
+      final int RADIX = 10;
+      
+      int square = topology.square(i, j);
+      int[] offsets = topology.offsetsFor(square);
+      int flagCount = 0;
+      boolean unrevealedFound = false;
+      
+      if (publicBoard.state(square) != PlayerBoard.REVEALED || privateBoard[square] < '1' || privateBoard[square] > '8')
+      {
+         return false;
+      }
+      
+      //Counting the flags and unrevealed squares around the square
+      for (int k = 0; k < offsets.length; k++)
+      {
+         int neighbour = topology.neighbour(square, offsets[k]);
+         if (publicBoard.state(neighbour) == PlayerBoard.FLAGGED)
+         {
+            flagCount++;
+         }
+         else if (publicBoard.state(neighbour) == PlayerBoard.HIDDEN)
+         {
+            unrevealedFound = true;
+         }
+      }
+      
+      return unrevealedFound && flagCount == Character.digit(privateBoard[square], RADIX);
    }
    
    /*
-   updateStats()
+   updateBoard()
    
-   This method updates the user's stats by assigning new values to several static variables
-   depending on whether the user won or lost. It then uses a buffered writer to write these
-   updated stats to the user's text file. After that, the method calls on outputStats() to
-   print the updated stats for the user to see.
+   This method updates publicBoard based on the user's request. If the user wants to dig, publicBoard
+   at that element is revealed and shows privateBoard, (which is the full board created in the method 
+   createBoard()). If the user wants to flag or unflag, publicBoard at that element becomes flagged or 
+   hidden respectively. This method is also responsible for making sure the user's first guess is never
+   a mine by instantly returning to the main method if the first guess is a mine. It is also responsible
+   for automatically revealing the surrounding tiles if the user digs a tile with the value of 0 by
+   calling on revealZeros(). This method is part of the 4 method game loop in playGame(), and this method 
+   gets called after digOrFlag().
+   
+   Chords and batch actions change all of their squares first, and then share a single pass of revealing
+   zeros, so the board is only printed and checked once per action.
+   Each action is published on eventBus, followed by the number of squares that it revealed.
    */
-   public static void updateStats()
+   public static void updateBoard()
    {
-      //Changing the variable values that represent the stats
-      if (winCon == 1)
+      //Checking if the user's first dig is a mine by assigning new values for firstDigMine and firstDig appropriately
+      if (firstDigMine && digOrFlag == 1 && privateBoard[topology.square(rowChoice-1, colChoice-1)] == 'X')
       {
-         numberOfWins++;
-         lastWinRows = numberOfRows;
-         lastWinCols = numberOfCols;
-         lastWinMines = numberOfMines;
+         firstDigMine = true;
+         firstDig = false;
+         return;
       }
       else
       {
-         numberOfLosses++;
+         firstDigMine = false;
+         firstDig = false;
       }
       
-      winRate = (double)numberOfWins / (numberOfWins + numberOfLosses) * 100;
+      squaresRevealed = 0;
+      squaresChanged = 0;
       
-      //Writing these updated variables to the user's file
-      try
+      //If user has dug this square, reveal it
+      if (digOrFlag == 1)
       {
-         BufferedWriter out = new BufferedWriter(new FileWriter(fileName, false));
-         out.write(numberOfWins + "\n");
-         out.write(numberOfLosses + "\n");
-         out.write(lastWinRows + "\n");
-         out.write(lastWinCols + "\n");
-         out.write(lastWinMines + "\n");
-         
-         out.close();
+         digSquare(topology.square(rowChoice-1, colChoice-1));
+         squaresChanged = 1;
       }
-      catch (IOException e)
+      //If user has flagged this square, flag it
+      else if (digOrFlag == 2)
+      {
+         int square = topology.square(rowChoice-1, colChoice-1);
+         squaresChanged = (publicBoard.state(square) == PlayerBoard.HIDDEN) ? 1 : 0;
+         publicBoard.set(square, PlayerBoard.FLAGGED);
+      }
+      //If user wants to unflage the square, hide it again
+      else if (digOrFlag == 3)
+      {
+         int square = topology.square(rowChoice-1, colChoice-1);
+         squaresChanged = (publicBoard.state(square) == PlayerBoard.FLAGGED) ? 1 : 0;
+         publicBoard.set(square, PlayerBoard.HIDDEN);
+      }
+      //If user has chorded this square, reveal every unrevealed square around it
+      else if (digOrFlag == 4)
+      {
+         int square = topology.square(rowChoice-1, colChoice-1);
+         int[] offsets = topology.offsetsFor(square);
+         for (int i = 0; i < offsets.length; i++)
+         {
+            int neighbour = topology.neighbour(square, offsets[i]);
+            if (publicBoard.state(neighbour) == PlayerBoard.HIDDEN)
+            {
+               digSquare(neighbour);
+               squaresChanged++;
+            }
+         }
+      }
+      //If user has batch dug or batch flagged, reveal or flag every square in batchCells
+      else
       {
-         System.out.println("IO Exception " + e + " at " + fileName);
+         for (int i = 0; i < batchSize; i++)
+         {
+            if (digOrFlag == 5)
+            {
+               digSquare(batchCells[i]);
+            }
+            else
+            {
+               publicBoard.set(batchCells[i], PlayerBoard.FLAGGED);
+            }
+         }
+         squaresChanged = batchSize;
       }
       
-      outputStats();
+      movesMade++;
+      publishEvent(GameEvent.ACTION);
+      
+      //If a 0 was dug, reveal the surrounding squares automatically by calling on revealZeros()
+      revealZeros();
+      
+      if (squaresRevealed > 0)
+      {
+         publishEvent(GameEvent.REVEAL);
+      }
    }
    
+   /*
+   revealZeros()
+   
+   This method reveals the squares around every 0 in revealQueue, which in turn adds any new 0s it digs back
+   into revealQueue, until there are no 0s left to reveal around. The 0s are handled one ring at a time: the
+   0s that were in revealQueue when a ring starts are moved into revealRing, and the 0s dug while revealing
+   around them make up the next ring. Only squares next to a 0 are ever looked at, so digging a 0 never
+   scans the whole board.
    
-   public static void main(String[] args)
+   Most rings are revealed one 0 at a time by revealZero(int square). A ring with at least
+   PARALLEL_REVEAL_THRESHOLD 0s is instead split into chunks that are revealed by RevealChunk on several
+   threads at once. The threads claim squares by setting their bit in revealedBits, so every square is dug by
+   exactly one thread, and the board ends up exactly the same as if every ring had been revealed one 0 at a time.
+   */
+   public static void revealZeros()
    {
       //Variable Declaration
-      Scanner sc = new Scanner(System.in);
-      
-      //Declaring int and double variables
-      int newOrReturning = -1;
-      int maxMines = -1;
-      int minMines = -1;
-      
-      int playAgain = 1;
-      
-      //Declaring String variables
-      String welcomeMessage = "Welcome to ICS Minesweeper";
-      String username = "";
-      
-      //Declaring boolean variables
-      boolean firstTime = true;
-      
-      //Welcome message
-      System.out.println("========================================");
-      System.out.printf("|%32s%8s\n", welcomeMessage, "|");
-      System.out.println("========================================");
+      int[] swap;
+      int ringSize;
+      List<RevealChunk> chunks;
       
-      //Collecting player information
-      do
+      while (revealQueueSize > 0)
       {
-         try
+         //Moving the 0s in revealQueue into revealRing so that revealQueue can collect the next ring
+         swap = revealRing;
+         revealRing = revealQueue;
+         revealQueue = swap;
+         ringSize = revealQueueSize;
+         revealQueueSize = 0;
+         
+         if (ringSize < PARALLEL_REVEAL_THRESHOLD)
          {
-            //Collecting player username
-            System.out.println("Hi there! What's your username?");
-            username = sc.nextLine();
-            
-            //Collecting input of new or returning player
-            System.out.println("\nAre you a [1] new player or a [2] returning player?");
-            newOrReturning = sc.nextInt();
-            
-            //Assigning a value for fileName
-            fileName = username + ".txt";
-            
-            //Creating a new text file for new players
-            if (newOrReturning == 1)
+            for (int i = 0; i < ringSize; i++)
             {
-               try
+               revealZero(revealRing[i]);
+            }
+         }
+         else
+         {
+            //Setting up revealedBits the first time that a ring is split, since every square that is not hidden is already claimed
+            if (revealedBits == null)
+            {
+               revealedBits = new AtomicLongArray((topology.size + 63) / 64);
+               for (int i = 0; i < topology.size; i++)
                {
-                  //Declaring a BufferedWriter
-                  BufferedWriter out = new BufferedWriter(new FileWriter(fileName, false));
-                  
-                  //Writing 5 lines of 0
-                  for (int i = 0; i < 5; i++)
+                  if (publicBoard.state(i) != PlayerBoard.HIDDEN)
                   {
-                     out.write("0");
-                     out.newLine();
+                     claimSquare(i);
                   }
-                  
-                  out.close();
-               }
-               catch (IOException e)
-               {
-                  System.out.println("IO exception " + e);
                }
-               inputValid = true;
             }
-            //Outputting stats for returning players before the game begins
-            else if (newOrReturning == 2)
+            
+            chunks = new ArrayList<RevealChunk>();
+            for (int i = 0; i < ringSize; i += PARALLEL_REVEAL_CHUNK)
             {
-               //Declaring a File Scanner and variables to store read values
-               Scanner fs = new Scanner(new File(fileName));
-               
-               //Reading current stats (and calculating winRate) from <username>.txt
-               numberOfWins =  fs.nextInt();
-               numberOfLosses =  fs.nextInt();
-               winRate = (double)numberOfWins / (numberOfWins + numberOfLosses) * 100;
-               lastWinRows =  fs.nextInt();
-               lastWinCols =  fs.nextInt();
-               lastWinMines =  fs.nextInt();
-               
-               //Outputting current stats
-               System.out.println("\nWelcome back " + username + "!");
-               outputStats();
-               inputValid = true;
+               chunks.add(new RevealChunk(revealRing, i, Math.min(i + PARALLEL_REVEAL_CHUNK, ringSize)));
             }
-            //Error message if the user inputs an integer that is not 1 or 2
-            else
+            ForkJoinTask.invokeAll(chunks);
+            
+            //Digging the squares that each thread claimed and collecting the next ring, which is done here so that
+            //publicBoard, minimapDug and revealQueue are only ever changed by one thread
+            for (RevealChunk chunk : chunks)
             {
-               System.out.println("Please enter only one of the integer options provided.\n");
-               sc.nextLine();
+               for (int i = 0; i < chunk.dugSize; i++)
+               {
+                  digSquare(chunk.dug[i]);
+               }
             }
          }
-         catch (InputMismatchException e)
-         {
-            System.out.println("Please enter only one of the integer options provided.\n");
-            sc.nextLine();
-         }
-         catch (IOException e)
+      }
+      
+      revealedBits = null;
+   }
+   
+   /*
+   claimSquare(int square)
+   
+   int square - The square to claim, stored as its index in publicBoard
+   
+   returns boolean - true if this call claimed the square, and false if it had already been claimed
+   
+   This method sets the square's bit in revealedBits using compareAndSet, which makes sure that when several
+   threads try to claim the same square at once, exactly one of them succeeds.
+   */
+   public static boolean claimSquare(int square)
+   {
+      //Variable Declaration
+      long bit = 1L << (square % 64);
+      long bits;
+      
+      do
+      {
+         bits = revealedBits.get(square / 64);
+         if ((bits & bit) != 0)
          {
-            System.out.println("Sorry, the username you entered does not exist.");
-            System.out.println("Are you sure you are a returning player? Please enter your username again.\n");
-            sc.nextLine();
+            return false;
          }
-         
-      } while (!inputValid);
+      } while (!revealedBits.compareAndSet(square / 64, bits, bits | bit));
       
-      //***Start of the actual Minesweeper Game. Keeps looping until player selects "[2] Quit" when prompted.***
-      do
+      return true;
+   }
+   
+   /*
+   revealZero(int square)
+   
+   int square - The index of an element in publicBoard equal to '0'
+   
+   This method is an extension of the method revealZeros. It gets called for every 0 that gets dug.
+   This method reveals those surrounding squares on publicBoard. Revealed 0s are shown as ' ' by
+   PlayerBoard, both for asthetic purposes, and also so the user can tell which 0s have already had
+   the squares around them revealed. If revealedBits is in use, a square is only dug if it
+   can also be claimed, so that it stays up to date for the next ring that gets split between threads.
+   */
+   public static void revealZero(int square)
+   {
+      //Variable Declaration
+      int[] offsets = topology.offsetsFor(square);
+      int neighbour;
+      
+      //Reveal all surrounding squares by udpating publicBoard
+      for (int i = 0; i < offsets.length; i++)
       {
-         //Taking user input of number of rows on the board
-         inputValid = false;
-         do
+         neighbour = topology.neighbour(square, offsets[i]);
+         if (publicBoard.state(neighbour) == PlayerBoard.HIDDEN && (revealedBits == null || claimSquare(neighbour)))
          {
-            try
-            {
-               System.out.print("\nHow many rows do you want?  ");
-               numberOfRows = sc.nextInt();
-               
-               if (numberOfRows >= 5 && numberOfRows <= 15)
+            digSquare(neighbour);
+         }
+      }
+   }
+   
+   /*
+   playGame()
+   
+   This method plays the game one action at a time until the user has won or lost. Each turn prints the
+   board with printBoard(), checks it with areYouWinningSon(), takes the user's next action with digOrFlag(),
+   and applies it with updateBoard(). These methods used to call on each other in a recursive loop, which added
+   to the stack on every move and ran out of stack long before a big board could be finished, so they now
+   each return here instead.
+   */
+   public static void playGame()
+   {
+      printBoard();
+      areYouWinningSon();
+      
+      while (winCon == 0)
+      {
+         digOrFlag();
+         updateBoard();
+         printBoard();
+         areYouWinningSon();
+      }
+   }
+   
+   /*
+   playCoop(int players)
+   
+   int players - The number of players taking turns at this computer
+   
+   This method plays a co-op game on sharedBoard, with the players taking turns one action at a time. Each
+   turn copies sharedBoard onto publicBoard with copySharedBoard(), so that printBoard() and digOrFlag() work
+   exactly like they do in a normal game, and then applies the player's action to sharedBoard instead of
+   calling updateBoard(). sharedBoard decides when the game has been won or lost and by which player. Co-op
+   games are not added to the user's stats or game history, since they are not played by the user alone.
+   */
+   public static void playCoop(int players)
+   {
+      //Variable Declaration
+      int player = 0;
+      int square;
+      int[] offsets;
+      int outcome;
+      
+      while (sharedBoard.outcome.get() == SharedBoard.PLAYING)
+      {
+         copySharedBoard();
+         printBoard();
+         System.out.println("Flags Remaining: " + flagsRemaining);
+         System.out.println("Player " + (player+1) + ", it's your turn.\n");
+         digOrFlag();
+         square = topology.square(rowChoice-1, colChoice-1);
+         
+         //Digging a flagged square takes the flag away first, since sharedBoard only digs hidden squares
+         if (digOrFlag == 1)
+         {
+            sharedBoard.unflag(square);
+            sharedBoard.dig(player, square);
+         }
+         else if (digOrFlag == 2)
+         {
+            sharedBoard.flag(player, square);
+         }
+         else if (digOrFlag == 3)
+         {
+            sharedBoard.unflag(square);
+         }
+         //Chording digs every square around the number, and sharedBoard leaves the flagged ones alone
+         else if (digOrFlag == 4)
+         {
+            offsets = topology.offsetsFor(square);
+            for (int i = 0; i < offsets.length; i++)
+            {
+               sharedBoard.dig(player, topology.neighbour(square, offsets[i]));
+            }
+         }
+         else
+         {
+            for (int i = 0; i < batchSize; i++)
+            {
+               if (digOrFlag == 5)
                {
-                  inputValid = true;
+                  sharedBoard.dig(player, batchCells[i]);
                }
                else
                {
-                  System.out.println("Invalid input. Please enter an integer between 5 and 15 (inclusive)");
+                  sharedBoard.flag(player, batchCells[i]);
                }
             }
-            catch (InputMismatchException e)
+         }
+         
+         player = (player + 1) % players;
+      }
+      
+      copySharedBoard();
+      printBoard();
+      
+      //Outputting which player ended the game
+      outcome = sharedBoard.outcome.get();
+      if ((outcome & SharedBoard.STATE_MASK) == SharedBoard.WON)
+      {
+         System.out.println("Player " + ((outcome >>> SharedBoard.STATE_BITS) + 1) + " dug the last safe square. You all win!");
+      }
+      else
+      {
+         System.out.println(" *** BOOOOOOOOOM! ***  X_x");
+         System.out.println("Player " + ((outcome >>> SharedBoard.STATE_BITS) + 1) + " hit a mine and you all lost. Better luck next time!");
+      }
+   }
+   
+   /*
+   copySharedBoard()
+   
+   This method sets every square of publicBoard to the state of the same square on sharedBoard, and counts
+   the revealed squares on the minimap again. It goes through the whole board, which is fine once per turn.
+   */
+   public static void copySharedBoard()
+   {
+      //Variable Declaration
+      int square;
+      int state;
+      
+      Arrays.fill(minimapDug, 0);
+      for (int i = 0; i < numberOfRows; i++)
+      {
+         for (int j = 0; j < numberOfCols; j++)
+         {
+            square = topology.square(i, j);
+            state = sharedBoard.cells.get(square) & SharedBoard.STATE_MASK;
+            
+            if (state == SharedBoard.REVEALED)
+            {
+               publicBoard.set(square, PlayerBoard.REVEALED);
+               minimapDug[(i / blockRows) * minimapCols + j / blockCols]++;
+            }
+            else if (state == SharedBoard.FLAGGED)
+            {
+               publicBoard.set(square, PlayerBoard.FLAGGED);
+            }
+            else
+            {
+               publicBoard.set(square, PlayerBoard.HIDDEN);
+            }
+         }
+      }
+   }
+   
+   /*
+   winMessage()
+   
+   This method outputs a message for the user if they have dug all the squares that
+   are not mines, along with how difficult the board was. It then calls on updateStats() to
+   update the user's stats by overwriting the user's text file.
+   */
+   public static void winMessage()
+   {
+      System.out.println("You cleared the field! YOU WIN!! \\o/");
+      printMetrics();
+      System.out.println("Your stats are now...");
+      updateStats();
+   }
+   
+   /*
+   loseMessage()
+   
+   This method outputs a message for the user if they have dug a mine, along with how difficult
+   the board was. It then calls on updateStats() to update the user's stats by overwriting the
+   user's text file.
+   */
+   public static void loseMessage()
+   {
+      System.out.println(" *** BOOOOOOOOOM! ***  X_x");
+      System.out.println("You hit a mine and lost. Better luck next time!");
+      printMetrics();
+      System.out.println("\nYour stats are now...");
+      updateStats();
+   }
+   
+   /*
+   printMetrics()
+   
+   This method outputs the difficulty of the board that was just played, which is stored in boardMetrics.
+   */
+   public static void printMetrics()
+   {
+      System.out.println("This board had a 3BV of " + boardMetrics.threeBV + " with " + boardMetrics.openings + " openings (the biggest had " 
+         + boardMetrics.largestOpening + " 0s) and " + boardMetrics.isolatedNumbers + " numbers that were not next to any opening.");
+   }
+   
+   /*
+   updateStats()
+   
+   This method updates the user's stats by assigning new values to several static variables
+   depending on whether the user won or lost. It then publishes the end of the game on eventBus,
+   and StatsWriter writes these updated stats to the user's text file on its own thread. After
+   that, the method calls on outputStats() to print the updated stats for the user to see.
+   */
+   public static void updateStats()
+   {
+      //Changing the variable values that represent the stats
+      if (winCon == 1)
+      {
+         numberOfWins++;
+         lastWinRows = numberOfRows;
+         lastWinCols = numberOfCols;
+         lastWinMines = numberOfMines;
+      }
+      else
+      {
+         numberOfLosses++;
+      }
+      
+      winRate = (double)numberOfWins / (numberOfWins + numberOfLosses) * 100;
+      
+      //Sending these updated variables to StatsWriter to be written to the user's file
+      publishEvent(GameEvent.GAME_END);
+      
+      outputStats();
+   }
+   
+   /*
+   publishEvent(int type)
+   
+   int type - The type of event, which is one of the constants in GameEvent
+   
+   This method fills in the next event slot of eventBus with the current state of the game and publishes
+   it. The slot is reused from eventBus, so publishing an event never creates any new objects and never
+   waits for the consumers to catch up.
+   */
+   public static void publishEvent(int type)
+   {
+      GameEvent event = eventBus.claim();
+      
+      event.type = type;
+      event.action = digOrFlag;
+      event.row = rowChoice;
+      event.col = colChoice;
+      event.squares = (type == GameEvent.REVEAL) ? squaresRevealed : squaresChanged;
+      event.result = winCon;
+      event.rows = numberOfRows;
+      event.cols = numberOfCols;
+      event.mines = numberOfMines;
+      event.topology = topology.kind;
+      event.wins = numberOfWins;
+      event.losses = numberOfLosses;
+      event.lastWinRows = lastWinRows;
+      event.lastWinCols = lastWinCols;
+      event.lastWinMines = lastWinMines;
+      event.moves = movesMade;
+      event.duration = (int)Math.min(System.currentTimeMillis() - gameStartTime, Integer.MAX_VALUE);
+      event.fileName = fileName;
+      
+      eventBus.publish(event);
+   }
+   
+   
+   public static void main(String[] args)
+   {
+      //Variable Declaration
+      Scanner sc = new Scanner(System.in);
+      
+      //Declaring int and double variables
+      int newOrReturning = -1;
+      int maxMines = -1;
+      int minMines = -1;
+      
+      int playAgain = 1;
+      int boardType = -1;
+      int topologyKind = -1;
+      int players = 1;
+      
+      //Declaring object variables
+      ChallengeBoard challenge = null;
+      GameHistory.Summary similarGames;
+      GameHistory.Summary sameGames;
+      
+      //Declaring String variables
+      String welcomeMessage = "Welcome to ICS Minesweeper";
+      String username = "";
+      
+      //Declaring boolean variables
+      boolean firstTime = true;
+      
+      //Welcome message
+      System.out.println("========================================");
+      System.out.printf("|%32s%8s\n", welcomeMessage, "|");
+      System.out.println("========================================");
+      
+      //Collecting player information
+      do
+      {
+         try
+         {
+            //Collecting player username
+            System.out.println("Hi there! What's your username?");
+            username = sc.nextLine();
+            
+            //Collecting input of new or returning player
+            System.out.println("\nAre you a [1] new player or a [2] returning player?");
+            newOrReturning = sc.nextInt();
+            
+            //Assigning a value for fileName
+            fileName = username + ".txt";
+            historyFileName = username + ".history";
+            
+            //Creating a new text file for new players
+            if (newOrReturning == 1)
+            {
+               try
+               {
+                  //Declaring a BufferedWriter
+                  BufferedWriter out = new BufferedWriter(new FileWriter(fileName, false));
+                  
+                  //Writing 5 lines of 0
+                  for (int i = 0; i < 5; i++)
+                  {
+                     out.write("0");
+                     out.newLine();
+                  }
+                  
+                  out.close();
+                  
+                  //Deleting the game history of any old player with the same username, so their games are not counted as this player's
+                  new File(historyFileName).delete();
+               }
+               catch (IOException e)
+               {
+                  System.out.println("IO exception " + e);
+               }
+               inputValid = true;
+            }
+            //Outputting stats for returning players before the game begins
+            else if (newOrReturning == 2)
+            {
+               //Declaring a File Scanner and variables to store read values
+               Scanner fs = new Scanner(new File(fileName));
+               
+               //Reading current stats (and calculating winRate) from <username>.txt
+               numberOfWins =  fs.nextInt();
+               numberOfLosses =  fs.nextInt();
+               winRate = (double)numberOfWins / (numberOfWins + numberOfLosses) * 100;
+               lastWinRows =  fs.nextInt();
+               lastWinCols =  fs.nextInt();
+               lastWinMines =  fs.nextInt();
+               
+               //Outputting current stats
+               System.out.println("\nWelcome back " + username + "!");
+               outputStats();
+               inputValid = true;
+            }
+            //Error message if the user inputs an integer that is not 1 or 2
+            else
             {
-               System.out.println("Invalid input. Please enter an integer between 5 and 15 (inclusive)");
+               System.out.println("Please enter only one of the integer options provided.\n");
                sc.nextLine();
             }
-         } while (!inputValid);
+         }
+         catch (InputMismatchException e)
+         {
+            System.out.println("Please enter only one of the integer options provided.\n");
+            sc.nextLine();
+         }
+         catch (IOException e)
+         {
+            System.out.println("Sorry, the username you entered does not exist.");
+            System.out.println("Are you sure you are a returning player? Please enter your username again.\n");
+            sc.nextLine();
+         }
          
-         //Taking user input of number of columns on the board
+      } while (!inputValid);
+      
+      //Starting the threads that handle the events published by the game
+      sessionMetrics = new SessionMetrics();
+      eventBus.start(new StatsWriter());
+      eventBus.start(sessionMetrics);
+      eventBus.start(new GameHistoryWriter(historyFileName));
+      
+      //***Start of the actual Minesweeper Game. Keeps looping until player selects "[2] Quit" when prompted.***
+      do
+      {
+         //Taking user input of number of rows on the board
          inputValid = false;
          do
          {
             try
             {
-               System.out.print("\nHow many columns do you want?  ");
-               numberOfCols = sc.nextInt();
+               System.out.print("\nHow many rows do you want?  ");
+               numberOfRows = sc.nextInt();
                
-               if (numberOfCols >= 5 && numberOfCols <= 15)
+               if (numberOfRows >= 5 && numberOfRows <= MAX_BOARD_SIZE)
                {
                   inputValid = true;
                }
                else
                {
-                  System.out.println("Invalid input. Please enter an integer between 5 and 15 (inclusive)");
+                  System.out.println("Invalid input. Please enter an integer between 5 and " + MAX_BOARD_SIZE + " (inclusive)");
                }
             }
             catch (InputMismatchException e)
             {
-               System.out.println("Invalid input. Please enter an integer between 5 and 15 (inclusive)");
+               System.out.println("Invalid input. Please enter an integer between 5 and " + MAX_BOARD_SIZE + " (inclusive)");
+               sc.nextLine();
+            }
+         } while (!inputValid);
+         
+         //Taking user input of number of columns on the board
+         inputValid = false;
+         do
+         {
+            try
+            {
+               System.out.print("\nHow many columns do you want?  ");
+               numberOfCols = sc.nextInt();
+               
+               if (numberOfCols >= 5 && numberOfCols <= MAX_BOARD_SIZE)
+               {
+                  inputValid = true;
+               }
+               else
+               {
+                  System.out.println("Invalid input. Please enter an integer between 5 and " + MAX_BOARD_SIZE + " (inclusive)");
+               }
+            }
+            catch (InputMismatchException e)
+            {
+               System.out.println("Invalid input. Please enter an integer between 5 and " + MAX_BOARD_SIZE + " (inclusive)");
                sc.nextLine();
             }
          } while (!inputValid);
@@ -810,37 +1785,166 @@ public class Minesweeper
             }
          } while (!inputValid);
          
+         //Taking user input of the shape of the board
+         inputValid = false;
          do
          {
-            //Initializing privateBoard using createBoard()
-            privateBoard = new char[numberOfRows][numberOfCols];
-            privateBoard = createBoard();
-            
-            //Printing out privateBoard (for debugging purposes) ------------------------------------------------------------------------------- REMOVE LATER
-            for (int i = 0; i < numberOfRows; i++)
+            try
             {
-               for (int j = 0; j < numberOfCols; j++)
+               System.out.print("\nWould you like a [1] Square, [2] Wrap-around, or [3] Hexagonal board?  ");
+               topologyKind = sc.nextInt();
+               
+               if (topologyKind >= Topology.SQUARE && topologyKind <= Topology.HEXAGONAL)
+               {
+                  inputValid = true;
+               }
+               else
                {
-                  System.out.print(privateBoard[i][j] + " ");
+                  System.out.println("Invalid input. Please enter either 1, 2, or 3.");
                }
-               System.out.println("");
             }
-            
-            //Initializing publicBoard as a 2D array of user input size filled with '_' in each element
-            publicBoard = new char[numberOfRows][numberOfCols];
-            for (int i = 0; i < numberOfRows; i++)
+            catch (InputMismatchException e)
+            {
+               System.out.println("Invalid input. Please enter either 1, 2, or 3.");
+               sc.nextLine();
+            }
+         } while (!inputValid);
+         
+         topology = new Topology(topologyKind, numberOfRows, numberOfCols);
+         
+         //Starting to generate boards of this size in the background while the user answers the next question
+         BoardPool.warmUp(topology, numberOfMines);
+         
+         //Taking user input of whether they want a random board or today's challenge board
+         inputValid = false;
+         do
+         {
+            try
+            {
+               System.out.print("\nWould you like to play a [1] Random board, [2] Today's challenge board, or [3] Co-op board?  ");
+               boardType = sc.nextInt();
+               
+               if (boardType == 1 || boardType == 2 || boardType == 3)
+               {
+                  inputValid = true;
+               }
+               else
+               {
+                  System.out.println("Invalid input. Please enter either 1, 2, or 3.");
+               }
+            }
+            catch (InputMismatchException e)
+            {
+               System.out.println("Invalid input. Please enter either 1, 2, or 3.");
+               sc.nextLine();
+            }
+         } while (!inputValid);
+         
+         challengeMode = (boardType == 2);
+         coopMode = (boardType == 3);
+         
+         //Taking user input of the number of players taking turns on a co-op board
+         inputValid = !coopMode;
+         while (!inputValid)
+         {
+            try
             {
-               for (int j = 0; j < numberOfCols; j++)
+               System.out.print("\nHow many players are taking turns?  ");
+               players = sc.nextInt();
+               
+               if (players >= 2 && players <= MAX_PLAYERS)
                {
-                     publicBoard[i][j] = '_';
+                  inputValid = true;
+               }
+               else
+               {
+                  System.out.println("Invalid input. Please enter an integer between 2 and " + MAX_PLAYERS + " (inclusive)");
                }
             }
+            catch (InputMismatchException e)
+            {
+               System.out.println("Invalid input. Please enter an integer between 2 and " + MAX_PLAYERS + " (inclusive)");
+               sc.nextLine();
+            }
+         }
+         
+         //Showing the user's record on boards like this one, which is read from their game history
+         try
+         {
+            //Boards with about the same density are the ones with the same size and within 10% of the same number of mines
+            similarGames = GameHistory.summarize(historyFileName, topology.kind, numberOfRows, numberOfCols, (int)Math.ceil(numberOfMines * 0.9), 
+               (int)Math.floor(numberOfMines * 1.1));
+            sameGames = GameHistory.summarize(historyFileName, topology.kind, numberOfRows, numberOfCols, numberOfMines, numberOfMines);
+            
+            if (similarGames.games > 0)
+            {
+               System.out.printf("\nYou have won %d of your %d games on %dx%d boards with about this many mines (%.2f%s).\n", similarGames.wins, 
+                  similarGames.games, numberOfRows, numberOfCols, (double)similarGames.wins / similarGames.games * 100, "%");
+            }
+            if (sameGames.wins > 0)
+            {
+               System.out.printf("Your best time on a %dx%d board with %d mines is %.1f seconds.\n", numberOfRows, numberOfCols, numberOfMines, 
+                  sameGames.bestWinTime / 1000.0);
+            }
+         }
+         catch (IOException e)
+         {
+            System.out.println("IO Exception " + e + " at " + historyFileName);
+         }
+         
+         gameStartTime = System.currentTimeMillis();
+         movesMade = 0;
+         
+         do
+         {
+            //Sharing today's challenge board from ChallengeBoard's cache, which is never written to by the game
+            if (challengeMode)
+            {
+               challenge = ChallengeBoard.forDay(LocalDate.now(ZoneOffset.UTC), topology, numberOfMines);
+               privateBoard = challenge.board;
+               boardMetrics = challenge.metrics;
+            }
+            //Initializing privateBoard using createBoard()
+            else
+            {
+               privateBoard = createBoard();
+            }
+            
+            //Initializing publicBoard with every square of privateBoard hidden
+            publicBoard = new PlayerBoard(topology, privateBoard);
+            resetViewport();
             
+            /*Every player of a challenge board starts by digging the same safe square, which keeps the race fair and means
+            that first guess security (which would change the board) is not needed.*/
+            if (challengeMode)
+            {
+               rowChoice = challenge.startRow + 1;
+               colChoice = challenge.startCol + 1;
+               digOrFlag = 1;
+               firstDigMine = false;
+               System.out.println("Today's challenge starts you off at " + rowChoice + "-" + colChoice + ".");
+               updateBoard();
+            }
+            /*A co-op game is played on sharedBoard, which starts with a safe square already dug instead of using first guess
+            security, since the first player to move should not be the only one who can't lose on their first dig.*/
+            else if (coopMode)
+            {
+               sharedBoard = new SharedBoard(topology, privateBoard, numberOfMines);
+               int start = ChallengeBoard.startSquare(privateBoard, topology, new Random());
+               sharedBoard.dig(0, start);
+               rowChoice = topology.row(start) + 1;
+               colChoice = topology.col(start) + 1;
+               firstDigMine = false;
+               System.out.println("Your co-op game starts you off at " + rowChoice + "-" + colChoice + ".");
+            }
             /*Outputs the empty board for the user to take their first action. Returns here if the user guesses a mine
             on their first guess.*/
-            if (firstDig)
+            else if (firstDig)
             {
                printBoard();
+               areYouWinningSon();
+               digOrFlag();
+               updateBoard();
             }
             /*If the program gets here, it means the user has tried to dig a mine on their first guess. updateBoard() will
             confirm this and change the value of firstDigMine appropriately. If firstDigMine is true, this do while loop
@@ -853,8 +1957,16 @@ public class Minesweeper
             
          } while (firstDigMine);
          
-         /*Begins executing the recursive methods: printBoard() --> areYouWinningSon() --> digOrFlag() --> updateBoard() --> printBoard() etc.
-         until areYouWinningSon() calls on winMessage() or loseMessage() --> updateStats() --> outputStats() --> main(String[] args)*/
+         /*Begins executing the game loop: printBoard() --> areYouWinningSon() --> digOrFlag() --> updateBoard() --> printBoard() etc.
+         until areYouWinningSon() calls on winMessage() or loseMessage() --> updateStats() --> outputStats()*/
+         if (coopMode)
+         {
+            playCoop(players);
+         }
+         else
+         {
+            playGame();
+         }
          
          //Asks the user if they would like to play again
          inputValid = false;
@@ -890,9 +2002,1683 @@ public class Minesweeper
          
       } while (playAgain == 1);
       
+      //Waiting for the event threads to finish the events that are left (including writing the stats file)
+      eventBus.shutdown();
+      
       //Thank you message once the user quits
+      System.out.println("This session you made " + sessionMetrics.actions + " moves and dug " + sessionMetrics.squaresDug + " squares over " 
+         + sessionMetrics.games + " games.");
+      if (eventBus.missed() > 0)
+      {
+         System.out.println("(" + eventBus.missed() + " game events were missed, so these numbers and your game history may be incomplete.)");
+      }
       System.out.print("Thanks for playing!");
       
    }
    
+}
+
+/*
+Topology
+
+This class describes the shape of a board and which squares are next to each other. Every board is stored
+as a flat char array with a border of Topology.BORDER squares around it, so square i-j is at index
+(i+1) * width + (j+1), and the neighbours of any square are found by adding the same few offsets to its
+index without ever checking if a neighbour is off the edge. There are three kinds of topology:
+   - SQUARE, the normal board where each square has up to 8 neighbours
+   - TORUS, where the board wraps around, so the squares on one edge are next to the squares on the
+      opposite edge and every square has exactly 8 neighbours
+   - HEXAGONAL, where every odd row is shifted half a square to the right and each square has up to 6
+      neighbours, so the offsets depend on whether the square is in an odd or an even row
+Neighbours are always looked up through neighbour(), which adds the offset to the square and, only on a
+torus, sends the border square it lands on through wrap to the square it wraps around to. Everything in
+this class is worked out once when the topology is created and is never changed, so one topology can be
+shared by any number of threads and boards.
+*/
+class Topology
+{
+   //Kinds of topology
+   static final int SQUARE = 1;
+   static final int TORUS = 2;
+   static final int HEXAGONAL = 3;
+   
+   //Constants
+   static final char BORDER = '#';                 //Value of the squares around the edge of every board
+   
+   //Variable Declaration
+   final int kind;
+   final int rows, cols;
+   final int width;                                //Length of a row including the border
+   final int size;                                 //Length of a board including the border
+   final int[][] offsets;                          //Offsets to the neighbours of a square, for rows with an even and odd index including the border
+   final int[] wrap;                               //The square that each index of a board really is, null unless this is a torus
+   
+   Topology(int kind, int rows, int cols)
+   {
+      this.kind = kind;
+      this.rows = rows;
+      this.cols = cols;
+      this.width = cols + 2;
+      this.size = (rows + 2) * width;
+      
+      if (kind == HEXAGONAL)
+      {
+         //Rows with an even index including the border are the odd rows of the board, which are the ones shifted right
+         offsets = new int[][] {
+            {-1, 1, -width, -width + 1, width, width + 1},
+            {-1, 1, -width - 1, -width, width - 1, width}};
+      }
+      else
+      {
+         int[] around = {-width - 1, -width, -width + 1, -1, 1, width - 1, width, width + 1};
+         offsets = new int[][] {around, around};
+      }
+      
+      wrap = (kind == TORUS) ? new int[size] : null;
+      if (kind == TORUS)
+      {
+         for (int i = 0; i < size; i++)
+         {
+            wrap[i] = i;
+         }
+         for (int i = -1; i <= rows; i++)
+         {
+            for (int j = -1; j <= cols; j++)
+            {
+               wrap[square(i, j)] = square((i + rows) % rows, (j + cols) % cols);
+            }
+         }
+      }
+   }
+   
+   /*
+   square(int i, int j)
+   
+   returns int - The index of square i-j in a board with this topology
+   */
+   int square(int i, int j)
+   {
+      return (i + 1) * width + (j + 1);
+   }
+   
+   /*
+   row(int square) and col(int square)
+   
+   returns int - The row or column index of the square at this index of a board
+   */
+   int row(int square)
+   {
+      return square / width - 1;
+   }
+   
+   int col(int square)
+   {
+      return square % width - 1;
+   }
+   
+   /*
+   neighbour(int square, int offset)
+   
+   returns int - The index of the square that is offset away from this square, which is only looked up in
+   wrap on a torus so the other topologies don't pay for a second load on every neighbour
+   */
+   int neighbour(int square, int offset)
+   {
+      return (wrap == null) ? square + offset : wrap[square + offset];
+   }
+   
+   /*
+   offsetsFor(int square)
+   
+   returns int[] - The offsets to the neighbours of the square at this index of a board. Every square in
+   the same row has the same offsets.
+   */
+   int[] offsetsFor(int square)
+   {
+      return offsets[(square / width) & 1];
+   }
+   
+   /*
+   newBoard(char fill)
+   
+   char fill - The value of every square on the new board
+   
+   returns char[] - A new board with this topology, with fill in every square and BORDER around the edge
+   */
+   char[] newBoard(char fill)
+   {
+      char[] board = new char[size];
+      
+      Arrays.fill(board, BORDER);
+      for (int i = 0; i < rows; i++)
+      {
+         Arrays.fill(board, square(i, 0), square(i, cols), fill);
+      }
+      
+      return board;
+   }
+}
+
+/*
+PlayerBoard
+
+This class is what the user can see of a board. Instead of keeping a char for every square, it only keeps
+whether each square is hidden, flagged, or revealed, packed into 2 bits per square, 32 squares to a long.
+A revealed square always shows the same thing as privateBoard, so shown(int square) looks it up there
+when the board is printed. It is laid out by the same topology as privateBoard, and the squares of the
+border are marked OUTSIDE so they are never dug. Only the game's thread ever changes a PlayerBoard, since
+two threads setting squares in the same long would undo each other.
+*/
+class PlayerBoard
+{
+   //States of a square
+   static final int HIDDEN = 0;
+   static final int FLAGGED = 1;
+   static final int REVEALED = 2;
+   static final int OUTSIDE = 3;
+   
+   //Constants
+   static final int STATE_BITS = 2;
+   static final int STATE_MASK = 3;
+   static final int SQUARES_PER_WORD = 64 / STATE_BITS;
+   
+   //Variable Declaration
+   final char[] privateBoard;
+   final long[] states;
+   
+   PlayerBoard(Topology topology, char[] privateBoard)
+   {
+      this.privateBoard = privateBoard;
+      this.states = new long[(topology.size + SQUARES_PER_WORD - 1) / SQUARES_PER_WORD];
+      
+      for (int i = 0; i < topology.size; i++)
+      {
+         if (privateBoard[i] == Topology.BORDER)
+         {
+            set(i, OUTSIDE);
+         }
+      }
+   }
+   
+   /*
+   state(int square)
+   
+   returns int - HIDDEN, FLAGGED, REVEALED, or OUTSIDE
+   */
+   int state(int square)
+   {
+      return (int)(states[square / SQUARES_PER_WORD] >>> ((square % SQUARES_PER_WORD) * STATE_BITS)) & STATE_MASK;
+   }
+   
+   /*
+   set(int square, int state)
+   
+   int state - HIDDEN, FLAGGED, REVEALED, or OUTSIDE
+   */
+   void set(int square, int state)
+   {
+      //Variable Declaration
+      int word = square / SQUARES_PER_WORD;
+      int shift = (square % SQUARES_PER_WORD) * STATE_BITS;
+      
+      states[word] = (states[word] & ~((long)STATE_MASK << shift)) | ((long)state << shift);
+   }
+   
+   /*
+   shown(int square)
+   
+   returns char - The square as it is printed, which is '_' if it is hidden, 'M' if it is flagged, and the
+   square from privateBoard if it is revealed, with 0s shown as ' '
+   */
+   char shown(int square)
+   {
+      //Variable Declaration
+      int state = state(square);
+      
+      if (state == HIDDEN)
+      {
+         return '_';
+      }
+      else if (state == FLAGGED)
+      {
+         return 'M';
+      }
+      else if (state == OUTSIDE)
+      {
+         return Topology.BORDER;
+      }
+      else if (privateBoard[square] == '0')
+      {
+         return ' ';
+      }
+      return privateBoard[square];
+   }
+}
+
+/*
+GameEvent
+
+This class is one slot of GameEventBus. The slots are created once when the bus is created and are then
+reused over and over, so the game never creates a new object to publish an event. sequence is the number of
+the event that is currently in the slot, and is set to -1 while the slot is being filled in, so that a
+consumer can tell if the slot was reused while it was reading it.
+*/
+class GameEvent
+{
+   //Event types
+   static final int ACTION = 1;                    //The user dug, flagged, unflagged, chorded, or made a batch action
+   static final int REVEAL = 2;                    //The squares revealed by the last action, including the ones revealed around 0s
+   static final int GAME_END = 3;                  //The user won or lost, along with their updated stats
+   
+   //Variable Declaration
+   volatile long sequence = -1;
+   int type;
+   int action;                                     //Value of digOrFlag
+   int row, col;                                   //Value of rowChoice and colChoice
+   int squares;                                    //Squares revealed for REVEAL, or squares dug or flagged by a chord or batch for ACTION
+   int moves;                                      //Number of actions made in the game so far
+   int duration;                                   //Milliseconds since the game started
+   int result;                                     //Value of winCon
+   int rows, cols, mines;
+   int topology;                                   //Kind of Topology that the game was played on
+   int wins, losses, lastWinRows, lastWinCols, lastWinMines;
+   String fileName;
+   long time;                                      //System.currentTimeMillis() when the event was published
+   
+   /*
+   copyFrom(GameEvent other)
+   
+   This method copies every field except sequence from other, which is how a consumer takes its own copy of a slot.
+   */
+   void copyFrom(GameEvent other)
+   {
+      type = other.type;
+      action = other.action;
+      row = other.row;
+      col = other.col;
+      squares = other.squares;
+      moves = other.moves;
+      duration = other.duration;
+      result = other.result;
+      rows = other.rows;
+      cols = other.cols;
+      mines = other.mines;
+      topology = other.topology;
+      wins = other.wins;
+      losses = other.losses;
+      lastWinRows = other.lastWinRows;
+      lastWinCols = other.lastWinCols;
+      lastWinMines = other.lastWinMines;
+      fileName = other.fileName;
+      time = other.time;
+   }
+}
+
+/*
+GameEventBus
+
+This class passes events from the game to consumers that each run on their own thread. Events are stored
+in a ring buffer of GameEvent slots that are created once and reused. Only the game's thread publishes
+events, so publishing is just filling in the next slot and moving cursor forward, and the game never waits
+for a consumer. A consumer that falls so far behind that its next events have already been written over
+skips ahead and counts the events it missed, which is why events like GAME_END carry the full stats rather
+than only what changed. The count is reported when the program ends, since a missed GAME_END means that
+game was never added to the history file. A consumer with nothing to do parks its thread, and publish()
+unparks it, so idle consumers use no CPU.
+*/
+class GameEventBus
+{
+   //Variable Declaration
+   final GameEvent[] slots;
+   final int mask;                                 //slots.length - 1, used to find the slot for a sequence number
+   final AtomicLong cursor = new AtomicLong(-1);   //Sequence number of the last published event
+   long nextSequence = 0;                          //Sequence number of the next event, only used by the game's thread
+   final List<GameEventConsumer> consumers = new ArrayList<GameEventConsumer>();
+   
+   GameEventBus(int capacity)
+   {
+      //Rounding capacity up to a power of 2 so that mask can be used instead of %
+      int size = Integer.highestOneBit(Math.max(capacity - 1, 1)) * 2;
+      
+      slots = new GameEvent[size];
+      mask = size - 1;
+      for (int i = 0; i < size; i++)
+      {
+         slots[i] = new GameEvent();
+      }
+   }
+   
+   /*
+   claim()
+   
+   returns GameEvent - The slot for the next event, which the caller fills in and passes to publish(GameEvent event)
+   */
+   GameEvent claim()
+   {
+      GameEvent event = slots[(int)(nextSequence & mask)];
+      event.sequence = -1;
+      
+      //Making sure that no consumer can see the new fields before it sees that the slot is being filled in
+      VarHandle.storeStoreFence();
+      return event;
+   }
+   
+   /*
+   publish(GameEvent event)
+   
+   This method makes the event that was just filled in visible to the consumers.
+   */
+   void publish(GameEvent event)
+   {
+      event.time = System.currentTimeMillis();
+      event.sequence = nextSequence;
+      cursor.set(nextSequence);
+      nextSequence++;
+      
+      //Waking up the consumers that ran out of events, which check cursor again after saying they are parked
+      for (int i = 0; i < consumers.size(); i++)
+      {
+         GameEventConsumer consumer = consumers.get(i);
+         if (consumer.parked)
+         {
+            LockSupport.unpark(consumer.thread);
+         }
+      }
+   }
+   
+   /*
+   read(long sequence, GameEvent into)
+   
+   returns boolean - true if the event was copied into into, and false if its slot has already been reused
+   */
+   boolean read(long sequence, GameEvent into)
+   {
+      GameEvent slot = slots[(int)(sequence & mask)];
+      
+      if (slot.sequence != sequence)
+      {
+         return false;
+      }
+      into.copyFrom(slot);
+      
+      //Making sure that the slot was not reused while it was being copied, which only works if every field was
+      //read before sequence is read again
+      VarHandle.loadLoadFence();
+      return slot.sequence == sequence;
+   }
+   
+   /*
+   start(GameEventConsumer consumer)
+   
+   This method starts a consumer on its own daemon thread. The consumer only sees events published after it starts.
+   */
+   void start(GameEventConsumer consumer)
+   {
+      consumer.bus = this;
+      consumer.nextSequence = cursor.get() + 1;
+      consumer.thread = new Thread(consumer, consumer.getClass().getSimpleName());
+      consumer.thread.setDaemon(true);
+      consumers.add(consumer);
+      consumer.thread.start();
+   }
+   
+   /*
+   shutdown()
+   
+   This method tells every consumer to stop once it has handled every event published so far, and waits
+   for them to finish.
+   */
+   void shutdown()
+   {
+      for (GameEventConsumer consumer : consumers)
+      {
+         consumer.running = false;
+         LockSupport.unpark(consumer.thread);
+      }
+      
+      for (GameEventConsumer consumer : consumers)
+      {
+         try
+         {
+            consumer.thread.join(5000);
+         }
+         catch (InterruptedException e)
+         {
+            Thread.currentThread().interrupt();
+         }
+      }
+   }
+   
+   /*
+   missed()
+   
+   returns long - The number of events that the consumers missed because they fell too far behind
+   */
+   long missed()
+   {
+      long missed = 0;
+      
+      for (GameEventConsumer consumer : consumers)
+      {
+         missed += consumer.missed;
+      }
+      
+      return missed;
+   }
+}
+
+/*
+GameEventConsumer
+
+This class is the base of every consumer of GameEventBus. It runs on its own thread, and each time it wakes
+up it handles every event that has been published since it last looked, one at a time through onEvent(GameEvent
+event), and then calls onBatchEnd() once. Consumers that do slow work like writing files should do it in
+onBatchEnd(), so that a burst of events only causes that work once.
+*/
+abstract class GameEventConsumer implements Runnable
+{
+   //Constants
+   static final int SPINS = 100;                   //Number of times the consumer yields when there are no new events before it parks
+   
+   //Variable Declaration
+   GameEventBus bus;
+   Thread thread;
+   volatile boolean running = true;
+   volatile boolean parked = false;                //true while the consumer is waiting for publish() to unpark it
+   long nextSequence;
+   volatile long missed = 0;                       //Number of events that were written over before this consumer could read them
+   final GameEvent event = new GameEvent();        //This consumer's own copy of the event it is handling
+   
+   public void run()
+   {
+      //Variable Declaration
+      boolean stopping;
+      long available;
+      int idle = 0;                                //Number of times in a row that there were no new events
+      
+      while (true)
+      {
+         //Checking running before cursor makes sure that every event published before shutdown() is handled
+         stopping = !running;
+         available = bus.cursor.get();
+         
+         if (available >= nextSequence)
+         {
+            if (available - nextSequence >= bus.slots.length)
+            {
+               missed += available - bus.slots.length + 1 - nextSequence;
+               nextSequence = available - bus.slots.length + 1;
+            }
+            
+            while (nextSequence <= available)
+            {
+               if (bus.read(nextSequence, event))
+               {
+                  onEvent(event);
+               }
+               else
+               {
+                  missed++;
+               }
+               nextSequence++;
+            }
+            
+            onBatchEnd();
+            idle = 0;
+         }
+         else if (stopping)
+         {
+            return;
+         }
+         else if (idle < SPINS)
+         {
+            Thread.yield();
+            idle++;
+         }
+         else
+         {
+            //Saying that this consumer is parked before checking cursor and running again, so that an event
+            //published in between is never slept through
+            parked = true;
+            if (bus.cursor.get() < nextSequence && running)
+            {
+               LockSupport.park(this);
+            }
+            parked = false;
+         }
+      }
+   }
+   
+   abstract void onEvent(GameEvent event);
+   
+   void onBatchEnd()
+   {
+   }
+}
+
+/*
+StatsWriter
+
+This consumer writes the user's stats to their text file whenever a game ends. Only the stats from the last
+GAME_END event in a batch are written, since each event carries the complete stats.
+*/
+class StatsWriter extends GameEventConsumer
+{
+   //Variable Declaration
+   final GameEvent latest = new GameEvent();
+   boolean changed = false;
+   
+   void onEvent(GameEvent event)
+   {
+      if (event.type == GameEvent.GAME_END)
+      {
+         latest.copyFrom(event);
+         changed = true;
+      }
+   }
+   
+   void onBatchEnd()
+   {
+      if (!changed)
+      {
+         return;
+      }
+      changed = false;
+      
+      //Writing the updated stats to the user's file
+      try
+      {
+         BufferedWriter out = new BufferedWriter(new FileWriter(latest.fileName, false));
+         out.write(latest.wins + "\n");
+         out.write(latest.losses + "\n");
+         out.write(latest.lastWinRows + "\n");
+         out.write(latest.lastWinCols + "\n");
+         out.write(latest.lastWinMines + "\n");
+         
+         out.close();
+      }
+      catch (IOException e)
+      {
+         System.out.println("IO Exception " + e + " at " + latest.fileName);
+      }
+   }
+}
+
+/*
+SessionMetrics
+
+This consumer counts the moves made, squares dug, and games played during this run of the program.
+*/
+class SessionMetrics extends GameEventConsumer
+{
+   //Variable Declaration
+   volatile long actions = 0;
+   volatile long squaresDug = 0;
+   volatile long games = 0;
+   
+   void onEvent(GameEvent event)
+   {
+      if (event.type == GameEvent.ACTION)
+      {
+         actions++;
+      }
+      else if (event.type == GameEvent.REVEAL)
+      {
+         squaresDug += event.squares;
+      }
+      else if (event.type == GameEvent.GAME_END)
+      {
+         games++;
+      }
+   }
+}
+
+/*
+GameHistoryWriter
+
+This consumer collects every GAME_END event in a batch and then adds all of them to the user's history
+file at once using GameHistory.append().
+*/
+class GameHistoryWriter extends GameEventConsumer
+{
+   //Variable Declaration
+   final String historyFileName;
+   final List<int[]> games = new ArrayList<int[]>();     //Each game is stored as {rows, cols, mines, won, duration, moves, topology}
+   final List<Long> endTimes = new ArrayList<Long>();
+   
+   GameHistoryWriter(String historyFileName)
+   {
+      this.historyFileName = historyFileName;
+   }
+   
+   void onEvent(GameEvent event)
+   {
+      if (event.type == GameEvent.GAME_END)
+      {
+         games.add(new int[] {event.rows, event.cols, event.mines, (event.result == 1) ? 1 : 0, event.duration, event.moves, event.topology});
+         endTimes.add(event.time);
+      }
+   }
+   
+   void onBatchEnd()
+   {
+      if (games.isEmpty())
+      {
+         return;
+      }
+      
+      try
+      {
+         GameHistory.append(historyFileName, games, endTimes);
+      }
+      catch (IOException e)
+      {
+         System.out.println("IO Exception " + e + " at " + historyFileName);
+      }
+      
+      games.clear();
+      endTimes.clear();
+   }
+}
+
+/*
+GameHistory
+
+This class reads and writes a user's game history file, which stores every game they have finished. The
+file is made of blocks that each hold up to BLOCK_RECORDS games. Inside a block, the games are stored one
+column at a time (all of the rows, then all of the columns, then all of the mines, and so on), and every
+value has a fixed width, so a question about one or two columns only has to read those columns. Each block
+starts with a header that stores the number of games in it, the smallest and largest rows, columns, mines, and
+kinds of topology of those games, the number of wins, and the best winning time. summarize() uses these headers
+to skip blocks that cannot have any matching games, and to answer for blocks where every game matches without
+reading any of their columns. The file is read through memory mapping, MAP_BLOCKS blocks at a time.
+*/
+class GameHistory
+{
+   //Constants
+   static final int BLOCK_RECORDS = 4096;          //Number of games in a full block
+   static final int MAP_BLOCKS = 2048;             //Number of blocks that summarize() maps into memory at once
+   
+   //Positions of the values in a block header
+   static final int COUNT = 0;                     //int
+   static final int MIN_ROWS = 4;                  //short
+   static final int MAX_ROWS = 6;                  //short
+   static final int MIN_COLS = 8;                  //short
+   static final int MAX_COLS = 10;                 //short
+   static final int MIN_MINES = 12;                //int
+   static final int MAX_MINES = 16;                //int
+   static final int WINS = 20;                     //int
+   static final int BEST_WIN_TIME = 24;            //int, Integer.MAX_VALUE if there are no wins in the block
+   static final int MIN_TOPOLOGY = 28;             //byte
+   static final int MAX_TOPOLOGY = 29;             //byte
+   static final int HEADER_BYTES = 64;
+   
+   //Positions of the columns in a block
+   static final int ROWS_COLUMN = HEADER_BYTES;                             //short for every game
+   static final int COLS_COLUMN = ROWS_COLUMN + 2 * BLOCK_RECORDS;          //short for every game
+   static final int MINES_COLUMN = COLS_COLUMN + 2 * BLOCK_RECORDS;         //int for every game
+   static final int WON_COLUMN = MINES_COLUMN + 4 * BLOCK_RECORDS;          //byte for every game, 1 if won and 0 if lost
+   static final int DURATION_COLUMN = WON_COLUMN + BLOCK_RECORDS;           //int for every game, in milliseconds
+   static final int MOVES_COLUMN = DURATION_COLUMN + 4 * BLOCK_RECORDS;     //int for every game
+   static final int END_TIME_COLUMN = MOVES_COLUMN + 4 * BLOCK_RECORDS;     //long for every game, from System.currentTimeMillis()
+   static final int TOPOLOGY_COLUMN = END_TIME_COLUMN + 8 * BLOCK_RECORDS;  //byte for every game, the kind of Topology
+   static final int BLOCK_BYTES = TOPOLOGY_COLUMN + BLOCK_RECORDS;
+   
+   /*
+   Summary
+   
+   The result of summarize(), which is the number of matching games, how many of them were won, and the
+   fastest of those wins in milliseconds (Integer.MAX_VALUE if there were no wins).
+   */
+   static class Summary
+   {
+      long games = 0;
+      long wins = 0;
+      int bestWinTime = Integer.MAX_VALUE;
+   }
+   
+   /*
+   append(String historyFileName, List<int[]> games, List<Long> endTimes)
+   
+   String historyFileName - The name of the history file, which is created if it does not exist
+   List<int[]> games - The games to add, each stored as {rows, cols, mines, won, duration, moves, topology}
+   List<Long> endTimes - The time that each game ended
+   
+   This method writes each game into the last block of the file, or into a new block if the last block is
+   full. The game's values are written into their columns first, and the block's game count is updated
+   last, so a game that was only partly written is never read.
+   */
+   static void append(String historyFileName, List<int[]> games, List<Long> endTimes) throws IOException
+   {
+      //Variable Declaration
+      RandomAccessFile file = new RandomAccessFile(historyFileName, "rw");
+      long blocks = file.length() / BLOCK_BYTES;
+      long block;
+      int count = BLOCK_RECORDS;
+      int[] game;
+      
+      try
+      {
+         if (blocks > 0)
+         {
+            file.seek((blocks - 1) * BLOCK_BYTES + COUNT);
+            count = file.readInt();
+         }
+         
+         for (int i = 0; i < games.size(); i++)
+         {
+            game = games.get(i);
+            
+            //Starting a new block, with a header that any game will fit inside of
+            if (count == BLOCK_RECORDS)
+            {
+               blocks++;
+               count = 0;
+               file.setLength(blocks * BLOCK_BYTES);
+               file.seek((blocks - 1) * BLOCK_BYTES);
+               file.writeInt(0);
+               file.writeShort(Short.MAX_VALUE);
+               file.writeShort(0);
+               file.writeShort(Short.MAX_VALUE);
+               file.writeShort(0);
+               file.writeInt(Integer.MAX_VALUE);
+               file.writeInt(0);
+               file.writeInt(0);
+               file.writeInt(Integer.MAX_VALUE);
+               file.writeByte(Byte.MAX_VALUE);
+               file.writeByte(0);
+            }
+            block = (blocks - 1) * BLOCK_BYTES;
+            
+            //Writing the game's values into each column
+            file.seek(block + ROWS_COLUMN + 2L * count);
+            file.writeShort(game[0]);
+            file.seek(block + COLS_COLUMN + 2L * count);
+            file.writeShort(game[1]);
+            file.seek(block + MINES_COLUMN + 4L * count);
+            file.writeInt(game[2]);
+            file.seek(block + WON_COLUMN + count);
+            file.writeByte(game[3]);
+            file.seek(block + DURATION_COLUMN + 4L * count);
+            file.writeInt(game[4]);
+            file.seek(block + MOVES_COLUMN + 4L * count);
+            file.writeInt(game[5]);
+            file.seek(block + END_TIME_COLUMN + 8L * count);
+            file.writeLong(endTimes.get(i));
+            file.seek(block + TOPOLOGY_COLUMN + count);
+            file.writeByte(game[6]);
+            
+            //Updating the block's header to include this game
+            updateHeaderShort(file, block + MIN_ROWS, game[0], true);
+            updateHeaderShort(file, block + MAX_ROWS, game[0], false);
+            updateHeaderShort(file, block + MIN_COLS, game[1], true);
+            updateHeaderShort(file, block + MAX_COLS, game[1], false);
+            updateHeaderInt(file, block + MIN_MINES, game[2], true);
+            updateHeaderInt(file, block + MAX_MINES, game[2], false);
+            updateHeaderByte(file, block + MIN_TOPOLOGY, game[6], true);
+            updateHeaderByte(file, block + MAX_TOPOLOGY, game[6], false);
+            if (game[3] == 1)
+            {
+               file.seek(block + WINS);
+               int wins = file.readInt();
+               file.seek(block + WINS);
+               file.writeInt(wins + 1);
+               updateHeaderInt(file, block + BEST_WIN_TIME, game[4], true);
+            }
+            
+            count++;
+            file.seek(block + COUNT);
+            file.writeInt(count);
+         }
+      }
+      finally
+      {
+         file.close();
+      }
+   }
+   
+   /*
+   updateHeaderByte(RandomAccessFile file, long position, int value, boolean keepSmallest)
+   
+   This method replaces the byte at position with value if value is smaller (or larger, if keepSmallest is false).
+   */
+   static void updateHeaderByte(RandomAccessFile file, long position, int value, boolean keepSmallest) throws IOException
+   {
+      file.seek(position);
+      int current = file.readByte();
+      
+      if (keepSmallest ? value < current : value > current)
+      {
+         file.seek(position);
+         file.writeByte(value);
+      }
+   }
+   
+   /*
+   updateHeaderShort(RandomAccessFile file, long position, int value, boolean keepSmallest)
+   
+   This method replaces the short at position with value if value is smaller (or larger, if keepSmallest is false).
+   */
+   static void updateHeaderShort(RandomAccessFile file, long position, int value, boolean keepSmallest) throws IOException
+   {
+      file.seek(position);
+      int current = file.readShort();
+      
+      if (keepSmallest ? value < current : value > current)
+      {
+         file.seek(position);
+         file.writeShort(value);
+      }
+   }
+   
+   /*
+   updateHeaderInt(RandomAccessFile file, long position, int value, boolean keepSmallest)
+   
+   This method replaces the int at position with value if value is smaller (or larger, if keepSmallest is false).
+   */
+   static void updateHeaderInt(RandomAccessFile file, long position, int value, boolean keepSmallest) throws IOException
+   {
+      file.seek(position);
+      int current = file.readInt();
+      
+      if (keepSmallest ? value < current : value > current)
+      {
+         file.seek(position);
+         file.writeInt(value);
+      }
+   }
+   
+   /*
+   summarize(String historyFileName, int topology, int rows, int cols, int minMines, int maxMines)
+   
+   String historyFileName - The name of the history file
+   int topology - The kind of Topology that matching games must have been played on
+   int rows - The number of rows that matching games must have
+   int cols - The number of columns that matching games must have
+   int minMines - The fewest mines that matching games can have
+   int maxMines - The most mines that matching games can have
+   
+   returns Summary - The number of matching games, how many were won, and the fastest win
+   
+   Win rates by density are found by turning the density range into a range of mines, and best times for
+   one exact board are found by making minMines equal to maxMines. If the file does not exist yet, the
+   returned Summary has no games.
+   */
+   static Summary summarize(String historyFileName, int topology, int rows, int cols, int minMines, int maxMines) throws IOException
+   {
+      //Variable Declaration
+      Summary summary = new Summary();
+      File historyFile = new File(historyFileName);
+      long blocks;
+      int mapped;
+      int block, count;
+      MappedByteBuffer map;
+      
+      if (!historyFile.exists())
+      {
+         return summary;
+      }
+      
+      RandomAccessFile file = new RandomAccessFile(historyFile, "r");
+      try
+      {
+         FileChannel channel = file.getChannel();
+         blocks = channel.size() / BLOCK_BYTES;
+         
+         for (long first = 0; first < blocks; first += MAP_BLOCKS)
+         {
+            mapped = (int)Math.min(MAP_BLOCKS, blocks - first);
+            map = channel.map(FileChannel.MapMode.READ_ONLY, first * BLOCK_BYTES, (long)mapped * BLOCK_BYTES);
+            
+            for (int i = 0; i < mapped; i++)
+            {
+               block = i * BLOCK_BYTES;
+               count = map.getInt(block + COUNT);
+               
+               //Skipping blocks where no game can match
+               if (count == 0 || rows < map.getShort(block + MIN_ROWS) || rows > map.getShort(block + MAX_ROWS) 
+                  || cols < map.getShort(block + MIN_COLS) || cols > map.getShort(block + MAX_COLS) 
+                  || maxMines < map.getInt(block + MIN_MINES) || minMines > map.getInt(block + MAX_MINES)
+                  || topology < map.get(block + MIN_TOPOLOGY) || topology > map.get(block + MAX_TOPOLOGY))
+               {
+                  continue;
+               }
+               
+               //Using only the header for blocks where every game matches
+               if (map.getShort(block + MIN_ROWS) == rows && map.getShort(block + MAX_ROWS) == rows 
+                  && map.getShort(block + MIN_COLS) == cols && map.getShort(block + MAX_COLS) == cols 
+                  && map.getInt(block + MIN_MINES) >= minMines && map.getInt(block + MAX_MINES) <= maxMines
+                  && map.get(block + MIN_TOPOLOGY) == topology && map.get(block + MAX_TOPOLOGY) == topology)
+               {
+                  summary.games += count;
+                  summary.wins += map.getInt(block + WINS);
+                  summary.bestWinTime = Math.min(summary.bestWinTime, map.getInt(block + BEST_WIN_TIME));
+                  continue;
+               }
+               
+               //Reading the columns of every other block one game at a time
+               for (int j = 0; j < count; j++)
+               {
+                  if (map.getShort(block + ROWS_COLUMN + 2 * j) == rows && map.getShort(block + COLS_COLUMN + 2 * j) == cols 
+                     && map.getInt(block + MINES_COLUMN + 4 * j) >= minMines && map.getInt(block + MINES_COLUMN + 4 * j) <= maxMines
+                     && map.get(block + TOPOLOGY_COLUMN + j) == topology)
+                  {
+                     summary.games++;
+                     if (map.get(block + WON_COLUMN + j) == 1)
+                     {
+                        summary.wins++;
+                        summary.bestWinTime = Math.min(summary.bestWinTime, map.getInt(block + DURATION_COLUMN + 4 * j));
+                     }
+                  }
+               }
+            }
+         }
+      }
+      finally
+      {
+         file.close();
+      }
+      
+      return summary;
+   }
+}
+
+/*
+RevealChunk
+
+This class reveals around one chunk of a ring of 0s for Minesweeper.revealZeros() on one of the threads of
+the fork/join pool. It works just like revealZero(int square), except that a square is only
+dug if this thread is the one that claims it. The squares it claims are collected in dug and are only
+revealed on publicBoard by revealZeros() once every thread has finished, since publicBoard packs many squares
+into each long and the minimap and revealQueue are not safe to change from several threads either.
+*/
+class RevealChunk extends RecursiveAction
+{
+   //Constants
+   private static final long serialVersionUID = 1L;
+   
+   //Variable Declaration
+   final int[] ring;
+   final int from, to;                             //The part of ring that this chunk reveals around
+   int[] dug;                                      //Squares claimed by this chunk, stored as their index in publicBoard
+   int dugSize = 0;
+   
+   RevealChunk(int[] ring, int from, int to)
+   {
+      this.ring = ring;
+      this.from = from;
+      this.to = to;
+      this.dug = new int[(to - from) * 8];
+   }
+   
+   protected void compute()
+   {
+      //Variable Declaration
+      Topology topology = Minesweeper.topology;
+      int[] offsets;
+      int neighbour;
+      
+      for (int square = from; square < to; square++)
+      {
+         offsets = topology.offsetsFor(ring[square]);
+         for (int i = 0; i < offsets.length; i++)
+         {
+            neighbour = topology.neighbour(ring[square], offsets[i]);
+            if (Minesweeper.claimSquare(neighbour))
+            {
+               dug[dugSize] = neighbour;
+               dugSize++;
+            }
+         }
+      }
+   }
+}
+
+/*
+BoardPool
+
+This class keeps a small pool of ready-made boards for each (topology, rows, columns, mines) configuration
+that the user has played, so that starting a new game does not have to wait for a board to be generated.
+Each configuration has its own bounded queue that background threads keep topped up to a target size.
+The target doubles every time the user asks for a board and the queue is empty, and shrinks by one every
+time a board is taken while the queue is still more than half full, so popular sizes get more boards
+kept ready and unpopular sizes slowly give theirs up. Only the most recently played configurations are
+kept, so the pool itself never grows without bound.
+*/
+class BoardPool
+{
+   //Constants
+   static final int MIN_TARGET = 1;                //Number of boards kept ready for a configuration that has barely been played
+   static final int MAX_TARGET = 16;               //Most boards ever kept ready for a single configuration
+   static final int MAX_CONFIGURATIONS = 8;        //Most configurations that the pool keeps boards ready for at once
+   static final int MAX_POOLED_SQUARES = 1000000;  //Most squares kept ready for a single configuration, so that big boards get fewer boards kept ready
+   static final int REFILL_THREADS = 2;
+   
+   //Static Variable Declaration
+   static final Map<String, Configuration> configurations = new LinkedHashMap<String, Configuration>(16, 0.75f, true);
+   static final ExecutorService refillThreads = Executors.newFixedThreadPool(REFILL_THREADS, new ThreadFactory()
+   {
+      public Thread newThread(Runnable r)
+      {
+         //Daemon threads, so that a refill in progress never stops the program from quitting
+         Thread t = new Thread(r, "board-pool-refill");
+         t.setDaemon(true);
+         return t;
+      }
+   });
+   
+   /*
+   Configuration
+   
+   The pool of ready boards for one (topology, rows, columns, mines) configuration. refilling makes sure
+   that only one background thread at a time is filling the queue for this configuration.
+   */
+   static class Configuration
+   {
+      final Topology topology;
+      final int mines;
+      final ArrayBlockingQueue<ReadyBoard> boards = new ArrayBlockingQueue<ReadyBoard>(MAX_TARGET);
+      final AtomicBoolean refilling = new AtomicBoolean(false);
+      final int maxTarget;
+      volatile int target = MIN_TARGET;
+      
+      Configuration(Topology topology, int mines)
+      {
+         this.topology = topology;
+         this.mines = mines;
+         this.maxTarget = Math.max(MIN_TARGET, Math.min(MAX_TARGET, MAX_POOLED_SQUARES / topology.size));
+      }
+   }
+   
+   /*
+   ReadyBoard
+   
+   A board in the pool along with its difficulty, which is scored by the thread that generated the board so
+   that the game never has to score a board that it takes from the pool.
+   */
+   static class ReadyBoard
+   {
+      final char[] board;
+      final BoardMetrics metrics;
+      
+      ReadyBoard(Topology topology, int mines)
+      {
+         this.board = Minesweeper.createBoard(topology, mines);
+         this.metrics = BoardMetrics.analyze(board, topology);
+      }
+   }
+   
+   /*
+   take(Topology topology, int mines)
+   
+   Topology topology - The shape and size of the board
+   int mines - The number of mines on the board
+   
+   returns ReadyBoard - A board that has never been used before, along with its difficulty
+   
+   This method never waits for a background thread. If a board is ready it is taken from the pool right
+   away, and otherwise a new one is generated and scored on the calling thread. Either way, the target for
+   this configuration is adjusted to the demand and a refill is started in the background.
+   */
+   static ReadyBoard take(Topology topology, int mines)
+   {
+      Configuration configuration = configurationFor(topology, mines);
+      ReadyBoard board = configuration.boards.poll();
+      
+      //Adapting the number of boards kept ready to how often this configuration is being played
+      if (board == null)
+      {
+         configuration.target = Math.min(configuration.target * 2, configuration.maxTarget);
+         board = new ReadyBoard(configuration.topology, mines);
+      }
+      else if (configuration.boards.size() > configuration.target / 2)
+      {
+         configuration.target = Math.max(configuration.target - 1, MIN_TARGET);
+      }
+      
+      refill(configuration);
+      return board;
+   }
+   
+   /*
+   warmUp(Topology topology, int mines)
+   
+   Topology topology - The shape and size of the board
+   int mines - The number of mines on the board
+   
+   This method starts filling the pool for a configuration in the background without taking a board,
+   so that the first game of that size can also start right away.
+   */
+   static void warmUp(Topology topology, int mines)
+   {
+      refill(configurationFor(topology, mines));
+   }
+   
+   /*
+   configurationFor(Topology topology, int mines)
+   
+   returns Configuration - The pool for this configuration, which is created if it does not exist yet
+   
+   If creating a new configuration goes over MAX_CONFIGURATIONS, the configuration that was played least
+   recently is dropped along with its ready boards. The configuration keeps the first topology it was
+   created with, which is shared by every board made for it since a topology never changes.
+   */
+   static synchronized Configuration configurationFor(Topology topology, int mines)
+   {
+      String key = topology.kind + ":" + topology.rows + "x" + topology.cols + "x" + mines;
+      Configuration configuration = configurations.get(key);
+      
+      if (configuration == null)
+      {
+         configuration = new Configuration(topology, mines);
+         configurations.put(key, configuration);
+         
+         if (configurations.size() > MAX_CONFIGURATIONS)
+         {
+            Iterator<Configuration> leastRecent = configurations.values().iterator();
+            leastRecent.next().target = 0;
+            leastRecent.remove();
+         }
+      }
+      
+      return configuration;
+   }
+   
+   /*
+   refill(Configuration configuration)
+   
+   This method hands the configuration to a background thread, which generates and scores boards until the
+   queue reaches the configuration's target. If a thread is already refilling this configuration, nothing happens.
+   */
+   static void refill(final Configuration configuration)
+   {
+      if (configuration.boards.size() >= configuration.target || !configuration.refilling.compareAndSet(false, true))
+      {
+         return;
+      }
+      
+      refillThreads.execute(new Runnable()
+      {
+         public void run()
+         {
+            try
+            {
+               while (configuration.boards.size() < configuration.target)
+               {
+                  configuration.boards.offer(new ReadyBoard(configuration.topology, configuration.mines));
+               }
+            }
+            finally
+            {
+               configuration.refilling.set(false);
+            }
+         }
+      });
+   }
+}
+
+/*
+BoardMetrics
+
+This class stores how difficult a board is, which is measured using:
+   - 3BV, the fewest clicks needed to clear the board without flagging. Every opening (a group of
+      connected 0s, which all get revealed by one click) takes one click, and so does every number
+      that is not next to a 0, since it can only be revealed by clicking it directly
+   - The number of openings, and the number of 0s in the biggest opening
+   - The number of isolated numbers, which are the numbers that are not next to any 0
+
+analyze(char[] board, Topology topology) finds all of these in a single pass over the board. Openings are
+found using a union-find over the 0s, where parent and size are plain int arrays indexed the same way as
+the board. The arrays belong to the thread that is analyzing and are reused for every board it analyzes, so
+analyzing a board never creates anything for each square. Each 0 is only joined with the neighbouring 0s
+that come before it in the board, since the rest will join with it when the pass reaches them.
+*/
+class BoardMetrics
+{
+   //Static Variable Declaration
+   static final ThreadLocal<int[][]> unionFind = new ThreadLocal<int[][]>();     //{parent, size} for each thread
+   
+   //Variable Declaration
+   int threeBV = 0;
+   int openings = 0;
+   int largestOpening = 0;                         //Number of 0s in the biggest opening
+   int isolatedNumbers = 0;
+   
+   /*
+   analyze(char[] board, Topology topology)
+   
+   char[] board - A fully unrevealed board, as made by createBoard()
+   Topology topology - The layout of board
+   
+   returns BoardMetrics - The difficulty of the board
+   */
+   static BoardMetrics analyze(char[] board, Topology topology)
+   {
+      //Variable Declaration
+      BoardMetrics metrics = new BoardMetrics();
+      int[][] arrays = unionFind.get();
+      int[] parent, size;
+      int[] offsets;
+      int square, neighbour;
+      boolean nextToZero;
+      
+      //Making this thread's arrays bigger if this board has more squares than any board it has analyzed before
+      if (arrays == null || arrays[0].length < topology.size)
+      {
+         arrays = new int[][] {new int[topology.size], new int[topology.size]};
+         unionFind.set(arrays);
+      }
+      parent = arrays[0];
+      size = arrays[1];
+      
+      for (int i = 0; i < topology.rows; i++)
+      {
+         offsets = topology.offsetsFor(topology.square(i, 0));
+         square = topology.square(i, 0);
+         for (int j = 0; j < topology.cols; j++, square++)
+         {
+            if (board[square] == '0')
+            {
+               //Starting a new opening, which is merged into any opening of the 0s before it
+               parent[square] = square;
+               size[square] = 1;
+               metrics.openings++;
+               metrics.largestOpening = Math.max(metrics.largestOpening, 1);
+               
+               for (int k = 0; k < offsets.length; k++)
+               {
+                  neighbour = topology.neighbour(square, offsets[k]);
+                  if (neighbour < square && board[neighbour] == '0')
+                  {
+                     metrics.join(parent, size, square, neighbour);
+                  }
+               }
+            }
+            else if (board[square] != 'X')
+            {
+               //Checking if this number is next to a 0
+               nextToZero = false;
+               for (int k = 0; k < offsets.length && !nextToZero; k++)
+               {
+                  nextToZero = board[topology.neighbour(square, offsets[k])] == '0';
+               }
+               
+               if (!nextToZero)
+               {
+                  metrics.isolatedNumbers++;
+               }
+            }
+         }
+      }
+      
+      metrics.threeBV = metrics.openings + metrics.isolatedNumbers;
+      return metrics;
+   }
+   
+   /*
+   join(int[] parent, int[] size, int a, int b)
+   
+   This method merges the openings that squares a and b belong to, keeping the smaller opening under the
+   bigger one. If they were already in the same opening nothing happens, and otherwise there is one less
+   opening than before.
+   */
+   void join(int[] parent, int[] size, int a, int b)
+   {
+      int rootA = find(parent, a);
+      int rootB = find(parent, b);
+      
+      if (rootA == rootB)
+      {
+         return;
+      }
+      if (size[rootA] < size[rootB])
+      {
+         int swap = rootA;
+         rootA = rootB;
+         rootB = swap;
+      }
+      
+      parent[rootB] = rootA;
+      size[rootA] += size[rootB];
+      openings--;
+      largestOpening = Math.max(largestOpening, size[rootA]);
+   }
+   
+   /*
+   find(int[] parent, int square)
+   
+   returns int - The square that represents the opening that square belongs to
+   
+   Every square looked at on the way is pointed at the square two steps above it, which keeps the paths short.
+   */
+   static int find(int[] parent, int square)
+   {
+      while (parent[square] != square)
+      {
+         parent[square] = parent[parent[square]];
+         square = parent[square];
+      }
+      return square;
+   }
+}
+
+/*
+ChallengeBoard
+
+This class represents the daily challenge board for one (day, topology, rows, columns, mines) configuration.
+The board is generated from a seed made out of those values, so every player who asks for the same
+challenge gets exactly the same layout. Since the game never writes to privateBoard, the board is only
+generated once and the same array is shared by every game of that challenge, with each game keeping
+only its own publicBoard. The most recently used challenges are kept in a cache that is limited to
+MAX_CACHED_BOARDS boards, and the least recently used one is dropped when the cache is full.
+*/
+class ChallengeBoard
+{
+   //Constants
+   static final int MAX_CACHED_BOARDS = 32;
+   
+   //Static Variable Declaration
+   static final Map<String, ChallengeBoard> cache = new LinkedHashMap<String, ChallengeBoard>(16, 0.75f, true)
+   {
+      protected boolean removeEldestEntry(Map.Entry<String, ChallengeBoard> eldest)
+      {
+         return size() > MAX_CACHED_BOARDS;
+      }
+   };
+   
+   //Variable Declaration
+   final LocalDate day;
+   final Topology topology;
+   final int mines;
+   final char[] board;                             //Shared by every game of this challenge, so it must never be written to
+   final int startRow, startCol;                   //Index of the safe square that every player of this challenge starts on
+   final BoardMetrics metrics;
+   
+   ChallengeBoard(LocalDate day, Topology topology, int mines)
+   {
+      //Variable Declaration
+      Random random = new Random(seedFor(day, topology, mines));
+      int start;
+      
+      this.day = day;
+      this.topology = topology;
+      this.mines = mines;
+      this.board = Minesweeper.createBoard(topology, mines, random);
+      this.metrics = BoardMetrics.analyze(board, topology);
+      
+      start = startSquare(board, topology, random);
+      this.startRow = topology.row(start);
+      this.startCol = topology.col(start);
+   }
+   
+   /*
+   startSquare(char[] board, Topology topology, Random random)
+   
+   returns int - The index of a safe square to start on, which is the first 0 (or the first non-mine if there
+   are no 0s) found by searching from a random square
+   */
+   static int startSquare(char[] board, Topology topology, Random random)
+   {
+      //Variable Declaration
+      int grids = topology.rows * topology.cols;
+      int start = random.nextInt(grids);
+      int fallback = -1;
+      
+      for (int i = 0; i < grids; i++)
+      {
+         int grid = (start + i) % grids;
+         char square = board[topology.square(grid / topology.cols, grid % topology.cols)];
+         if (square == '0')
+         {
+            fallback = grid;
+            break;
+         }
+         else if (fallback == -1 && square != 'X')
+         {
+            fallback = grid;
+         }
+      }
+      
+      return topology.square(fallback / topology.cols, fallback % topology.cols);
+   }
+   
+   /*
+   forDay(LocalDate day, Topology topology, int mines)
+   
+   returns ChallengeBoard - The challenge board for this day and size
+   
+   This method returns the cached challenge board if there is one, and otherwise generates it and adds it
+   to the cache.
+   */
+   static synchronized ChallengeBoard forDay(LocalDate day, Topology topology, int mines)
+   {
+      String key = day + "/" + topology.kind + ":" + topology.rows + "x" + topology.cols + "x" + mines;
+      ChallengeBoard challenge = cache.get(key);
+      
+      if (challenge == null)
+      {
+         challenge = new ChallengeBoard(day, topology, mines);
+         cache.put(key, challenge);
+      }
+      
+      return challenge;
+   }
+   
+   /*
+   seedFor(LocalDate day, Topology topology, int mines)
+   
+   returns long - The seed that the challenge for this day and size is generated from
+   
+   java.util.Random always produces the same numbers for the same seed, so this seed is all that is
+   needed to create the same challenge board on any computer.
+   */
+   static long seedFor(LocalDate day, Topology topology, int mines)
+   {
+      final long PRIME = 1000003;
+      
+      long seed = day.toEpochDay();
+      seed = seed * PRIME + topology.rows;
+      seed = seed * PRIME + topology.cols;
+      seed = seed * PRIME + mines;
+      seed = seed * PRIME + topology.kind;
+      
+      return seed;
+   }
+}
+
+/*
+SharedBoard
+
+This class is one board that several players clear together at the same time, each on their own thread.
+Unlike publicBoard, nothing here is ever locked. The state of every square is packed into one int of
+cells, holding whether the square is hidden, revealed, or flagged, and which player did it, so digging or
+flagging a square is a single compareAndSet on that int. A square can only go from hidden to revealed once,
+so when two players dig the same square, or two flood fills reach the same square, exactly one of them
+reveals it and counts it. The game ends the first time a player digs a mine or the number of revealed
+squares reaches the number of squares that are not mines, and outcome is set using compareAndSet so that
+the game is won or lost exactly once, by exactly one player.
+
+privateBoard is never written to, so it can be shared by every player in the same way as ChallengeBoard.
+Minesweeper.playCoop() uses a SharedBoard for players taking turns at one computer, and MinesweeperChecks
+has many threads play one at the same time.
+*/
+class SharedBoard
+{
+   //States of a square (the lowest 2 bits of a cell)
+   static final int HIDDEN = 0;
+   static final int REVEALED = 1;
+   static final int FLAGGED = 2;
+   static final int OUTSIDE = 3;                   //Border squares, which can never be dug or flagged
+   
+   //Outcomes of the game (the lowest 2 bits of outcome)
+   static final int PLAYING = 0;
+   static final int WON = 1;
+   static final int LOST = 2;
+   
+   //Constants
+   static final int STATE_BITS = 2;
+   static final int STATE_MASK = 3;
+   
+   //Variable Declaration
+   final Topology topology;
+   final char[] privateBoard;
+   final int safeSquares;                          //Number of squares that are not mines
+   final AtomicIntegerArray cells;                 //(player << STATE_BITS) | state for each square
+   final AtomicInteger revealed = new AtomicInteger(0);
+   final AtomicInteger outcome = new AtomicInteger(PLAYING);     //(player << STATE_BITS) | outcome, where player is who ended the game
+   
+   SharedBoard(Topology topology, char[] privateBoard, int mines)
+   {
+      this.topology = topology;
+      this.privateBoard = privateBoard;
+      this.safeSquares = topology.rows * topology.cols - mines;
+      this.cells = new AtomicIntegerArray(topology.size);
+      
+      for (int i = 0; i < topology.size; i++)
+      {
+         if (privateBoard[i] == Topology.BORDER)
+         {
+            cells.set(i, OUTSIDE);
+         }
+      }
+   }
+   
+   /*
+   dig(int player, int square)
+   
+   int player - The number of the player who is digging
+   int square - The index of the square being dug
+   
+   returns boolean - true if this dig ended the game, and false otherwise
+   
+   This method reveals the square if it is still hidden. If it is a 0, every hidden square around it is
+   revealed as well, along with the squares around any 0s revealed that way, the same way that revealZeros()
+   does. Each square is revealed with its own compareAndSet, so a flood fill never reveals a square that
+   another player has already revealed or flagged, and never waits for another player's flood fill.
+   */
+   boolean dig(int player, int square)
+   {
+      //Variable Declaration
+      int[] stack;
+      int stackSize = 0;
+      int count = 1;
+      int current, neighbour;
+      int[] offsets;
+      
+      if (outcome.get() != PLAYING || !cells.compareAndSet(square, HIDDEN, (player << STATE_BITS) | REVEALED))
+      {
+         return false;
+      }
+      if (privateBoard[square] == 'X')
+      {
+         return finish(player, LOST);
+      }
+      
+      //Revealing around every 0 this dig finds, using a stack that only this thread uses
+      if (privateBoard[square] == '0')
+      {
+         stack = new int[64];
+         stack[stackSize] = square;
+         stackSize++;
+         
+         while (stackSize > 0)
+         {
+            stackSize--;
+            current = stack[stackSize];
+            offsets = topology.offsetsFor(current);
+            
+            for (int i = 0; i < offsets.length; i++)
+            {
+               neighbour = topology.neighbour(current, offsets[i]);
+               if (cells.compareAndSet(neighbour, HIDDEN, (player << STATE_BITS) | REVEALED))
+               {
+                  count++;
+                  if (privateBoard[neighbour] == '0')
+                  {
+                     if (stackSize == stack.length)
+                     {
+                        stack = Arrays.copyOf(stack, stack.length * 2);
+                     }
+                     stack[stackSize] = neighbour;
+                     stackSize++;
+                  }
+               }
+            }
+         }
+      }
+      
+      //Only the dig that reveals the last safe square sees the count reach safeSquares
+      if (revealed.addAndGet(count) == safeSquares)
+      {
+         return finish(player, WON);
+      }
+      return false;
+   }
+   
+   /*
+   flag(int player, int square)
+   
+   returns boolean - true if the square was hidden and is now flagged by player
+   */
+   boolean flag(int player, int square)
+   {
+      return outcome.get() == PLAYING && cells.compareAndSet(square, HIDDEN, (player << STATE_BITS) | FLAGGED);
+   }
+   
+   /*
+   unflag(int square)
+   
+   returns boolean - true if the square was flagged (by any player) and is now hidden again
+   */
+   boolean unflag(int square)
+   {
+      //Variable Declaration
+      int cell;
+      
+      do
+      {
+         cell = cells.get(square);
+         if ((cell & STATE_MASK) != FLAGGED)
+         {
+            return false;
+         }
+      } while (!cells.compareAndSet(square, cell, HIDDEN));
+      
+      return true;
+   }
+   
+   /*
+   finish(int player, int result)
+   
+   returns boolean - true if this call ended the game, and false if it had already been won or lost
+   */
+   boolean finish(int player, int result)
+   {
+      return outcome.compareAndSet(PLAYING, (player << STATE_BITS) | result);
+   }
+   
+   /*
+   view(int square)
+   
+   returns char - The square as it would be shown on publicBoard
+   */
+   char view(int square)
+   {
+      //Variable Declaration
+      int state = cells.get(square) & STATE_MASK;
+      
+      if (state == HIDDEN)
+      {
+         return '_';
+      }
+      else if (state == FLAGGED)
+      {
+         return 'M';
+      }
+      else if (privateBoard[square] == '0')
+      {
+         return ' ';
+      }
+      return privateBoard[square];
+   }
 }
\ No newline at end of file